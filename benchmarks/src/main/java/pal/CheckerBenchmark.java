@@ -0,0 +1,149 @@
+package pal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times each phase of checking a file on its own (reading it in, checking it and writing the report) and the
+ * whole check end to end. The input is written once per trial by PalGenerator, so every phase sees the same
+ * program for a given set of parameters. Any parameter can be changed from the command line, for example
+ *
+ *   java -jar benchmarks/target/benchmarks.jar -p lines=1000000 -p errorRate=0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckerBenchmark {
+
+    /**
+     * The generated program, shared by every benchmark in a trial.
+     */
+    @State(Scope.Benchmark)
+    public static class Workload {
+        @Param({"10000", "200000"})
+        public int lines;
+
+        @Param({"0.1"})
+        public double labelDensity;
+
+        @Param({"50"})
+        public int forwardDistance;
+
+        @Param({"0.1"})
+        public double commentRatio;
+
+        @Param({"0.05"})
+        public double errorRate;
+
+        @Param({"1"})
+        public long seed;
+
+        Path directory;
+        String fileName;
+
+        @Setup(Level.Trial)
+        public void generate() throws IOException {
+            directory = Files.createTempDirectory("pal-bench");
+            Path file = directory.resolve("bench.pal");
+            new PalGenerator(seed)
+                    .setLines(lines)
+                    .setLabelDensity(labelDensity)
+                    .setForwardDistance(forwardDistance)
+                    .setCommentRatio(commentRatio)
+                    .setErrorRate(errorRate)
+                    .write(file);
+            fileName = file.toString();
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path: (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * A checker that has read the file in, made fresh for every call.
+     */
+    @State(Scope.Thread)
+    public static class ReadChecker {
+        StyleChecker checker;
+
+        @Setup(Level.Invocation)
+        public void read(Workload workload) throws IOException {
+            checker = new StyleChecker(workload.fileName, false);
+            checker.readInFile();
+        }
+    }
+
+    /**
+     * A checker that has read and checked the file, made fresh for every call.
+     */
+    @State(Scope.Thread)
+    public static class CheckedChecker {
+        StyleChecker checker;
+
+        @Setup(Level.Invocation)
+        public void check(Workload workload) throws IOException {
+            checker = new StyleChecker(workload.fileName, false);
+            checker.readInFile();
+            checker.checkForCompileErrors();
+        }
+    }
+
+    @Benchmark
+    public StyleChecker readInFile(Workload workload) throws IOException {
+        StyleChecker checker = new StyleChecker(workload.fileName, false);
+        checker.readInFile();
+        return checker;
+    }
+
+    @Benchmark
+    public StyleChecker checkForCompileErrors(ReadChecker read) {
+        read.checker.checkForCompileErrors();
+        return read.checker;
+    }
+
+    @Benchmark
+    public StyleChecker generateReport(CheckedChecker checked) throws IOException {
+        checked.checker.generateReport();
+        return checked.checker;
+    }
+
+    @Benchmark
+    public StyleChecker endToEnd(Workload workload) throws IOException {
+        StyleChecker checker = new StyleChecker(workload.fileName, false);
+        checker.check();
+        return checker;
+    }
+
+    @Benchmark
+    public StyleChecker endToEndStream(Workload workload) throws IOException {
+        StyleChecker checker = new StyleChecker(workload.fileName, true);
+        checker.check();
+        return checker;
+    }
+}
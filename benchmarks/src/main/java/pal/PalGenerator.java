@@ -0,0 +1,271 @@
+package pal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * This class is responsible for writing synthetic PAL programs shaped like samplePAL.pal and samplePAL2.pal,
+ * for benchmarking the checker. The same seed and settings always give the same program.
+ *
+ * A program starts with SRT and a block of DEF lines, then runs arithmetic, moves and branches between labels
+ * before ending at DONE: END. The settings control:
+ *   lines            the number of lines, including SRT and END.
+ *   labelDensity     the share of lines that define a label.
+ *   forwardDistance  the average number of lines a forward branch jumps. Half of the branches jump forward
+ *                    and half jump back to a label already defined.
+ *   commentRatio     the share of lines with a comment, either after the code or on a line of its own.
+ *   errorRate        the share of lines with one of the errors from samplePAL2.pal.
+ */
+public class PalGenerator {
+
+    private static final String[] REGISTERS = {"R0", "R1", "R2", "R3", "R4", "R5", "R6", "R7"};
+    private static final String[] ARITHMETIC = {"ADD", "SUB", "MUL", "DIV"};
+    private static final String[] COMMENTS = {"load the counter", "next value", "loop until done",
+            "keep the total", "step the index"};
+    private static final String INDENT = "      ";
+
+    private final long seed;
+    private int lines = 10000;
+    private double labelDensity = 0.1;
+    private int forwardDistance = 50;
+    private double commentRatio = 0.1;
+    private double errorRate = 0.05;
+
+    private Random random;
+    private ArrayList<String> memoryLocations;
+    private ArrayList<String> definedLabels;
+    private HashMap<Integer, String> scheduledLabels;
+    private int labelCount;
+
+    /**
+     * @param seed the seed for every random choice.
+     */
+    public PalGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public PalGenerator setLines(int lines) {
+        this.lines = Math.max(2, lines);
+        return this;
+    }
+
+    public PalGenerator setLabelDensity(double labelDensity) {
+        this.labelDensity = labelDensity;
+        return this;
+    }
+
+    public PalGenerator setForwardDistance(int forwardDistance) {
+        this.forwardDistance = Math.max(1, forwardDistance);
+        return this;
+    }
+
+    public PalGenerator setCommentRatio(double commentRatio) {
+        this.commentRatio = commentRatio;
+        return this;
+    }
+
+    public PalGenerator setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * This method is responsible for writing the program to a file.
+     * @param file the file to write, replaced if it exists.
+     */
+    public void write(Path file) throws IOException {
+        try (BufferedWriter output = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            generate(output);
+        }
+    }
+
+    /**
+     * This method is responsible for writing the program one line at a time.
+     * @param output where the lines go, each followed by \n.
+     */
+    public void generate(Writer output) throws IOException {
+        random = new Random(seed);
+        memoryLocations = new ArrayList<>();
+        definedLabels = new ArrayList<>();
+        scheduledLabels = new HashMap<>();
+        labelCount = 0;
+
+        output.write(INDENT + "SRT\n");
+
+        int definitions = Math.min(lines - 2, Math.max(1, lines / 50));
+        for (int i = 0; i < definitions; i++) {
+            String name = name(i, "M");
+            memoryLocations.add(name);
+            output.write(INDENT + "DEF " + name + ", " + register() + "\n");
+        }
+
+        for (int line = 1 + definitions; line < lines - 1; line++) {
+            output.write(line(line));
+            output.write('\n');
+        }
+
+        output.write("DONE: END\n");
+    }
+
+    private String line(int line) {
+        String label = scheduledLabels.remove(line);
+        if (label == null && random.nextDouble() < labelDensity) {
+            label = name(labelCount++, "L");
+        }
+        if (label != null) {
+            definedLabels.add(label);
+        }
+
+        double roll = random.nextDouble();
+        if (label == null && roll < commentRatio / 2) {
+            return random.nextInt(4) == 0 ? "" : INDENT + ";" + comment() + " ELO";
+        }
+
+        String code = instruction(line);
+        if (random.nextDouble() < errorRate) {
+            return error(label, code);
+        }
+
+        String text = (label == null ? INDENT : labelPrefix(label)) + code;
+        if (roll < commentRatio) {
+            text += "      ;" + comment() + " ELO";
+        }
+        return text;
+    }
+
+    private String instruction(int line) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return "MOVE " + number() + ", " + destination();
+            case 1:
+                return "COPY " + source() + ", " + destination();
+            case 2:
+                return (random.nextBoolean() ? "INC " : "DEC ") + destination();
+            case 3:
+            case 4:
+                return ARITHMETIC[random.nextInt(ARITHMETIC.length)] + " " + register() + ", " + register() + ", "
+                        + destination();
+            case 5:
+                return "BR " + branchTarget(line);
+            default:
+                return (random.nextBoolean() ? "BEQ " : "BGT ") + source() + ", " + register() + ", "
+                        + branchTarget(line);
+        }
+    }
+
+    /*
+     * The errors from samplePAL2.pal, along with the label errors the checker knows.
+     */
+    private String error(String label, String code) {
+        String prefix = label == null ? INDENT : labelPrefix(label);
+
+        switch (random.nextInt(8)) {
+            case 0:
+                return prefix + "MOV" + code.substring(code.indexOf(' '));
+            case 1:
+                return prefix + code + ", " + register() + "         ;error too many operands ELO";
+            case 2:
+                return prefix + code.substring(0, code.lastIndexOf(',') < 0 ? code.indexOf(' ') : code.lastIndexOf(','))
+                        + "               ;error too few operands ELO";
+            case 3:
+                return prefix + code + "      ;error no end line operator";
+            case 4:
+                return "L" + random.nextInt(10) + ":   " + code;
+            case 5:
+                return "LONGLABEL: " + code;
+            case 6:
+                return prefix + "BR " + name(labelCount + random.nextInt(1000), "X");
+            default:
+                return prefix + "MOVE " + number() + ", " + random.nextInt(100);
+        }
+    }
+
+    private String branchTarget(int line) {
+        if (!definedLabels.isEmpty() && random.nextBoolean()) {
+            int recent = Math.min(definedLabels.size(), 64);
+            return definedLabels.get(definedLabels.size() - 1 - random.nextInt(recent));
+        }
+
+        int distance = 1 + (int) (-Math.log(1 - random.nextDouble()) * (forwardDistance - 1));
+        int target = line + distance;
+        if (target >= lines - 1) {
+            return "DONE";
+        }
+        return scheduledLabels.computeIfAbsent(target, key -> name(labelCount++, "L"));
+    }
+
+    private String source() {
+        return random.nextBoolean() ? register() : memoryLocation();
+    }
+
+    private String destination() {
+        return random.nextBoolean() ? register() : memoryLocation();
+    }
+
+    private String number() {
+        return random.nextInt(3) == 0 ? register() : Integer.toString(random.nextInt(100));
+    }
+
+    private String register() {
+        return REGISTERS[random.nextInt(REGISTERS.length)];
+    }
+
+    private String memoryLocation() {
+        return memoryLocations.isEmpty() ? register() : memoryLocations.get(random.nextInt(memoryLocations.size()));
+    }
+
+    private String comment() {
+        return COMMENTS[random.nextInt(COMMENTS.length)];
+    }
+
+    private static String labelPrefix(String label) {
+        return label + ":" + " ".repeat(Math.max(1, INDENT.length() - label.length() - 1));
+    }
+
+    /*
+     * Names are a letter followed by up to four more letters, so they are valid labels and memory locations.
+     */
+    private static String name(int index, String first) {
+        StringBuilder name = new StringBuilder(first);
+        do {
+            name.insert(1, (char) ('A' + index % 26));
+            index /= 26;
+        } while (index > 0 && name.length() < 5);
+        return name.toString();
+    }
+
+    /**
+     * Writes a program to a file.
+     * @param args the file to write, then optionally the lines, seed, label density, forward distance, comment
+     *             ratio and error rate.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: PalGenerator file [lines [seed [labelDensity [forwardDistance"
+                    + " [commentRatio [errorRate]]]]]]");
+            return;
+        }
+
+        PalGenerator generator = new PalGenerator(args.length > 2 ? Long.parseLong(args[2]) : 1);
+        if (args.length > 1)
+            generator.setLines(Integer.parseInt(args[1]));
+        if (args.length > 3)
+            generator.setLabelDensity(Double.parseDouble(args[3]));
+        if (args.length > 4)
+            generator.setForwardDistance(Integer.parseInt(args[4]));
+        if (args.length > 5)
+            generator.setCommentRatio(Double.parseDouble(args[5]));
+        if (args.length > 6)
+            generator.setErrorRate(Double.parseDouble(args[6]));
+
+        generator.write(Paths.get(args[0]));
+    }
+}
@@ -0,0 +1,491 @@
+package pal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * This class is responsible for checking many PAL files in one run. Every file gets its own StyleChecker, so
+ * the files are checked in parallel on a work stealing pool with one thread per core. Each file still gets its
+ * own .log, and a summary of the whole batch is printed once every file is done.
+ *
+ * A .zip or .jar bundle is not extracted. Each of its .pal (or .pal.gz) entries is checked as a file of its own,
+ * decompressed as its lines are read, on the same pool as every other file, so one entry is inflated while
+ * others are being checked. The report of progs.zip!/dir/a.pal is written to progs.reports/dir/a.log, and
+ * progs.reports/summary.txt holds the summary of the bundle, which takes a single line of the batch summary.
+ */
+public class BatchChecker {
+
+    private static final int TOTAL_ERRORS = ReportFormat.TOTAL_ERRORS;
+    private static final int LABEL_WARNINGS = ReportFormat.LABEL_WARNINGS;
+    private static final String[] COUNT_NAMES = ReportFormat.COUNT_NAMES;
+
+    static final String REPORTS_SUFFIX = ".reports";
+    static final String BUNDLE_SUMMARY = "summary.txt";
+
+    private final boolean streamMode;
+    private final int threads;
+    private int fileThreads = 1;  // the threads each file gets, 1 unless it is the only file
+    private final ResultCache cache;
+    private final ReportFormat format;
+    private Path workingDirectory = null;
+    private long runBudget = 0;
+    private boolean profile = false;
+    private PrintStream out = System.out;
+    private PrintStream err = System.err;
+
+    /**
+     * The counts from one checked file, kept so the checker and its lines can be dropped as soon as the
+     * file is done.
+     */
+    private static class FileResult {
+        final String fileName;
+        final String failure;
+        final int[] counts;
+        final String run;  // what -run printed, or null
+        String bundle = null;  // the bundle an entry came from, or null for a file
+        String entryName = null;
+
+        FileResult(String fileName, String failure, int[] counts, String run) {
+            this.fileName = fileName;
+            this.failure = failure;
+            this.counts = counts;
+            this.run = run;
+        }
+    }
+
+    /**
+     * A check waiting on the pool, with the names its result is filed under if the check itself fails.
+     */
+    private static class PendingFile {
+        final Future<FileResult> result;
+        final String fileName;
+        final String bundle;
+        final String entryName;
+
+        PendingFile(Future<FileResult> result, String fileName, String bundle, String entryName) {
+            this.result = result;
+            this.fileName = fileName;
+            this.bundle = bundle;
+            this.entryName = entryName;
+        }
+    }
+
+    /**
+     * @param streamMode true to check each file in a single pass without holding it in memory.
+     * @param threads how many threads a single large file may be split across. The files of a batch already
+     *                share one thread per core, so a file is only split when it is the only one to check.
+     * @param cache the results of earlier checks to reuse, or null to check every file.
+     * @param format the layout of the report written for each file.
+     */
+    public BatchChecker(boolean streamMode, int threads, ResultCache cache, ReportFormat format) {
+        this.streamMode = streamMode;
+        this.threads = threads;
+        this.cache = cache;
+        this.format = format;
+    }
+
+    /**
+     * Sets the directory relative file names, directories and patterns are found in.
+     * @param workingDirectory the directory, or null for the current one.
+     */
+    public void setWorkingDirectory(Path workingDirectory) {
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Sets where the summary and errors are printed, System.out and System.err by default.
+     */
+    public void setOutput(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Sets whether each file without errors is run once it is checked. The runs are printed after the summary.
+     * @param budget the most instructions to run each file for, 0 to not run them.
+     * @param profile true to also print how many times each opcode ran.
+     */
+    public void setRun(long budget, boolean profile) {
+        this.runBudget = budget;
+        this.profile = profile;
+    }
+
+    /**
+     * @param fileName a file name.
+     * @return true if it names a .zip or .jar bundle.
+     */
+    static boolean isBundle(String fileName) {
+        return fileName.endsWith(".zip") || fileName.endsWith(".jar");
+    }
+
+    /**
+     * This method is responsible for checking every file named by the inputs and printing the batch summary.
+     * @param inputs file names, directories (searched for .pal and .pal.gz files), glob patterns and bundles.
+     */
+    public void run(List<String> inputs) {
+        List<Path> files = new ArrayList<>();
+        try {
+            files = findFiles(inputs, workingDirectory);
+        } catch (IOException ex) {
+            err.println("\nERROR: " + ex.getMessage());
+        }
+
+        fileThreads = files.size() == 1 && !isBundle(files.get(0).toString()) ? threads : 1;
+        ExecutorService pool = Executors.newWorkStealingPool();
+        List<PendingFile> pending = new ArrayList<>();
+        List<ZipFile> bundles = new ArrayList<>();
+        List<FileResult> results = new ArrayList<>();
+        try {
+            for (Path file: files) {
+                if (isBundle(file.toString())) {
+                    submitBundle(file, pool, pending, bundles);
+                } else {
+                    pending.add(new PendingFile(pool.submit(() -> checkFile(file)), file.toString(), null, null));
+                }
+            }
+
+            for (PendingFile file: pending) {
+                try {
+                    results.add(file.result.get());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ex) {
+                    String failure = "\nERROR: The check of " + file.fileName + " failed. " + ex.getCause();
+                    err.println(failure);
+                    FileResult result = new FileResult(file.fileName, failure.trim(), null, null);
+                    result.bundle = file.bundle;
+                    result.entryName = file.entryName;
+                    results.add(result);
+                }
+            }
+        } finally {
+            pool.shutdown();
+            for (ZipFile bundle: bundles) {
+                try {
+                    bundle.close();
+                } catch (IOException ignored) {
+                    // every entry has been read
+                }
+            }
+        }
+
+        writeBundleSummaries(results);
+        printSummary("Batch Summary", "Files", results, false, out);
+    }
+
+    /**
+     * This method is responsible for opening a bundle and queueing a check of each of its .pal entries. The
+     * bundle stays open until every entry is done, as ZipFile lets each thread inflate an entry of its own.
+     */
+    private void submitBundle(Path file, ExecutorService pool, List<PendingFile> pending, List<ZipFile> bundles) {
+        ZipFile zip;
+        try {
+            zip = new ZipFile(StyleChecker.resolve(workingDirectory, file.toString()).toFile());
+        } catch (IOException ex) {
+            String failure = "\nERROR: The bundle " + file + " could not be opened.";
+            err.println(failure);
+            pending.add(new PendingFile(CompletableFuture.completedFuture(new FileResult(file.toString(),
+                    failure.trim(), null, null)), file.toString(), null, null));
+            return;
+        }
+        bundles.add(zip);
+
+        String bundleName = file.toString();
+        Path reports = Paths.get(StyleChecker.reportBaseName(bundleName) + REPORTS_SUFFIX);
+        List<ZipEntry> entries = zip.stream()
+                .filter(entry -> !entry.isDirectory() && (entry.getName().endsWith(".pal")
+                        || entry.getName().endsWith(".pal" + PalInput.GZIP_EXTENSION)))
+                .sorted(Comparator.comparing(ZipEntry::getName))
+                .collect(Collectors.toList());
+        for (ZipEntry entry: entries) {
+            pending.add(new PendingFile(pool.submit(() -> checkEntry(bundleName, zip, entry, reports)),
+                    bundleName + "!/" + entry.getName(), bundleName, entry.getName()));
+        }
+        if (entries.isEmpty()) {
+            err.println("\nERROR: The bundle " + bundleName + " has no .pal entries.");
+        }
+    }
+
+    /**
+     * This method is responsible for checking one entry of a bundle. Its lines are inflated as the checker
+     * reads them, so the entry is never written to disk.
+     */
+    private FileResult checkEntry(String bundleName, ZipFile zip, ZipEntry entry, Path reports) {
+        String fileName = bundleName + "!/" + entry.getName();
+        Path report = reports.resolve(StyleChecker.reportBaseName(entry.getName())).normalize();
+        FileResult result;
+
+        if (!report.startsWith(reports) || report.equals(reports)) {
+            String failure = "\nERROR: The entry " + fileName + " is not a relative path.";
+            err.println(failure);
+            result = new FileResult(fileName, failure.trim(), null, null);
+        } else {
+            StyleChecker checker = new StyleChecker(fileName,
+                    () -> PalInput.read(zip.getInputStream(entry), entry.getName().endsWith(PalInput.GZIP_EXTENSION)),
+                    report.toString(), streamMode);
+            try {
+                Files.createDirectories(StyleChecker.resolve(workingDirectory, report.toString()).getParent());
+                result = check(fileName, checker);
+            } catch (IOException ex) {
+                String failure = "\nERROR: The report directory for " + fileName + " could not be created.";
+                err.println(failure);
+                result = new FileResult(fileName, failure.trim(), null, null);
+            }
+        }
+
+        result.bundle = bundleName;
+        result.entryName = entry.getName();
+        return result;
+    }
+
+    private FileResult checkFile(Path file) {
+        return check(file.toString(), new StyleChecker(file.toString(), streamMode));
+    }
+
+    private FileResult check(String fileName, StyleChecker checker) {
+        checker.setThreads(fileThreads);
+        checker.setCache(cache);
+        checker.setFormat(format);
+        checker.setWorkingDirectory(workingDirectory);
+
+        try {
+            checker.check();
+        } catch (IOException ex) {
+            err.println(ex.getMessage());
+            return new FileResult(fileName, ex.getMessage().trim().split("\n")[0], null, null);
+        }
+
+        String run = null;
+        if (runBudget > 0) {
+            ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            try (PrintStream runOut = new PrintStream(printed, true, Charset.defaultCharset())) {
+                StyleChecker.printRun(fileName, checker, runBudget, profile, runOut);
+            } catch (IOException ex) {
+                err.println(ex.getMessage());
+            }
+            run = printed.toString(Charset.defaultCharset());
+        }
+
+        int[] counts = {checker.getTotalErrors(), checker.getNumIllFormedLabel(), checker.getNumOpCodeErrors(),
+                checker.getNumTooFewOperands(), checker.getNumTooManyOperands(), checker.getNumIllFormedOperands(),
+                checker.getNumWrongOperandType(), checker.getNumLabelProblems(), checker.getNumLabelWarnings()};
+        return new FileResult(fileName, null, counts, run);
+    }
+
+    /**
+     * This method is responsible for turning the inputs into the list of files to check, in the order given and
+     * without duplicates. Directories and glob patterns are searched recursively and their matches sorted.
+     */
+    static List<Path> findFiles(List<String> inputs) throws IOException {
+        return findFiles(inputs, null);
+    }
+
+    /**
+     * @param workingDirectory the directory relative inputs are found in, or null for the current one. The
+     *                         files found are still given relative to it.
+     */
+    static List<Path> findFiles(List<String> inputs, Path workingDirectory) throws IOException {
+        LinkedHashSet<Path> files = new LinkedHashSet<>();
+
+        for (String input: inputs) {
+            int wildcard = indexOfWildcard(input);
+
+            if (wildcard >= 0) {
+                int separator = Math.max(input.lastIndexOf('/', wildcard), input.lastIndexOf('\\', wildcard));
+                Path base = separator < 0 ? Paths.get("") : Paths.get(input.substring(0, separator + 1));
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+
+                files.addAll(walk(base, matcher, workingDirectory));
+            } else if (Files.isDirectory(StyleChecker.resolve(workingDirectory, input))) {
+                files.addAll(walk(Paths.get(input), FileSystems.getDefault().getPathMatcher("glob:**.{pal,pal.gz}"),
+                        workingDirectory));
+            } else {
+                files.add(Paths.get(input));
+            }
+        }
+
+        return new ArrayList<>(files);
+    }
+
+    private static int indexOfWildcard(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Path> walk(Path base, PathMatcher matcher, Path workingDirectory) throws IOException {
+        boolean relocated = workingDirectory != null && !base.isAbsolute();
+        Path directory = relocated ? workingDirectory.resolve(base) : base;
+        if (!Files.isDirectory(directory.toString().isEmpty() ? Paths.get(".") : directory)) {
+            return new ArrayList<>();
+        }
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(path -> relocated ? workingDirectory.relativize(path) : path)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * This method is responsible for writing the summary of each bundle into its reports directory.
+     */
+    private void writeBundleSummaries(List<FileResult> results) {
+        LinkedHashMap<String, List<FileResult>> bundles = groupByBundle(results);
+        for (Map.Entry<String, List<FileResult>> bundle: bundles.entrySet()) {
+            if (bundle.getKey() == null) {
+                continue;
+            }
+
+            Path summary = StyleChecker.resolve(workingDirectory,
+                    StyleChecker.reportBaseName(bundle.getKey()) + REPORTS_SUFFIX).resolve(BUNDLE_SUMMARY);
+            try (PrintStream file = new PrintStream(Files.newOutputStream(summary), true, Charset.defaultCharset())) {
+                printSummary("Bundle Summary for " + bundle.getKey(), "Entries", bundle.getValue(), true, file);
+            } catch (IOException ex) {
+                err.println("\nERROR: The summary " + summary + " could not be written.");
+            }
+        }
+    }
+
+    /**
+     * @return the results of plain files under null and the entries of each bundle under its name, in the
+     *         order they were first seen.
+     */
+    private static LinkedHashMap<String, List<FileResult>> groupByBundle(List<FileResult> results) {
+        LinkedHashMap<String, List<FileResult>> groups = new LinkedHashMap<>();
+        for (FileResult result: results) {
+            groups.computeIfAbsent(result.bundle, bundle -> new ArrayList<>()).add(result);
+        }
+        return groups;
+    }
+
+    /**
+     * @param title the heading, such as Batch Summary.
+     * @param noun what was checked, Files or Entries.
+     * @param results every result, each entry of a bundle on its own.
+     * @param bundle true for the summary of a single bundle, which names each entry and leaves out the runs.
+     *               Otherwise the entries of each bundle share a single line.
+     */
+    private static void printSummary(String title, String noun, List<FileResult> results, boolean bundle,
+                                     PrintStream out) {
+        int[] totals = new int[COUNT_NAMES.length];
+        int filesWithErrors = 0;
+        int filesFailed = 0;
+
+        for (FileResult result: results) {
+            if (result.counts == null) {
+                filesFailed++;
+                continue;
+            }
+            if (result.counts[TOTAL_ERRORS] > 0) {
+                filesWithErrors++;
+            }
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += result.counts[i];
+            }
+        }
+
+        out.println("\n" + title + "\n" + "--------------------------------------------------");
+        out.println(noun + " checked: " + (results.size() - filesFailed) + ".");
+        out.println(noun + " with errors: " + filesWithErrors + ".");
+        if (filesFailed > 0) {
+            out.println(noun + " that could not be checked: " + filesFailed + ".");
+        }
+
+        out.println("");
+        out.println("Total Errors: " + totals[TOTAL_ERRORS] + ".");
+        for (int i = 1; i < LABEL_WARNINGS; i++) {
+            if (totals[i] > 0) {
+                out.println("    " + totals[i] + " " + COUNT_NAMES[i] + " Errors.");
+            }
+        }
+        out.println("Total warnings: " + totals[LABEL_WARNINGS] + ".");
+
+        out.println("");
+        LinkedHashMap<String, List<FileResult>> bundles = groupByBundle(results);
+        for (FileResult result: results) {
+            if (bundle || result.bundle == null) {
+                printResultLine(bundle ? result.entryName : result.fileName, result, out);
+            } else if (bundles.get(result.bundle).get(0) == result) {
+                printBundleLine(result.bundle, bundles.get(result.bundle), out);
+            }
+        }
+
+        if (totals[TOTAL_ERRORS] > 0 || filesFailed > 0) {
+            out.println("\nPAL Compile completed with errors.");
+        } else {
+            out.println("\nPAL Compile completed successfully.");
+        }
+
+        for (FileResult result: results) {
+            if (result.run != null && !bundle) {
+                out.print(result.run);
+            }
+        }
+    }
+
+    private static void printResultLine(String name, FileResult result, PrintStream out) {
+        if (result.counts == null) {
+            out.println("    " + name + ": " + result.failure);
+        } else {
+            out.println("    " + name + ": " + result.counts[TOTAL_ERRORS] + " errors, "
+                    + result.counts[LABEL_WARNINGS] + " warnings.");
+        }
+    }
+
+    /**
+     * This method is responsible for printing the line a bundle takes in the batch summary, which points to the
+     * summary of the bundle for its entries.
+     */
+    private static void printBundleLine(String bundle, List<FileResult> entries, PrintStream out) {
+        int checked = 0;
+        int withErrors = 0;
+        int errors = 0;
+        int warnings = 0;
+        for (FileResult entry: entries) {
+            if (entry.counts == null) {
+                continue;
+            }
+            checked++;
+            if (entry.counts[TOTAL_ERRORS] > 0) {
+                withErrors++;
+            }
+            errors += entry.counts[TOTAL_ERRORS];
+            warnings += entry.counts[LABEL_WARNINGS];
+        }
+
+        out.println("    " + bundle + ": " + checked + " entries checked, " + withErrors + " with errors, "
+                + (checked < entries.size() ? entries.size() - checked + " not checked, " : "") + errors
+                + " errors, " + warnings + " warnings. See "
+                + Paths.get(StyleChecker.reportBaseName(bundle) + REPORTS_SUFFIX, BUNDLE_SUMMARY) + ".");
+    }
+}
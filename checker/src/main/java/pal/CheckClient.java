@@ -0,0 +1,114 @@
+package pal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is responsible for handing a check to a running CheckServer. It takes the same arguments as
+ * StyleChecker and prints the same output, so it can stand in for it. When no server is running, and for -watch,
+ * it checks the files itself.
+ *
+ * Passing -connect=PORT or -connect=SOCKET picks the server, which is the default socket otherwise. Passing -
+ * as the only file checks standard input and prints its report rather than writing one.
+ */
+public class CheckClient {
+
+    public static void main(String[] args) {
+        String address = null;
+        String format = "log";
+        boolean watchMode = false;
+        List<String> forwarded = new ArrayList<>();
+        List<String> inputs = new ArrayList<>();
+
+        for (String arg: args) {
+            if (arg.startsWith("-connect=")) {
+                address = arg.substring("-connect=".length());
+                continue;
+            }
+
+            forwarded.add(arg);
+            if ("-watch".equals(arg)) {
+                watchMode = true;
+            } else if (arg.startsWith("-format=")) {
+                format = arg.substring("-format=".length());
+            } else if (!StyleChecker.isOption(arg)) {
+                inputs.add(arg);
+            }
+        }
+
+        boolean standardInput = inputs.size() == 1 && "-".equals(inputs.get(0));
+        SocketChannel channel = null;
+        if (!watchMode) {
+            try {
+                channel = SocketChannel.open(CheckServer.address(address));
+            } catch (IOException ex) {
+                // no server, check the files here
+            }
+        }
+        if (channel == null && standardInput) {
+            try {
+                String text = new String(System.in.readAllBytes(), Charset.defaultCharset());
+                CheckServer.checkSource("standard input", format, text, System.out, System.err);
+            } catch (IOException ex) {
+                System.err.println("\nERROR: Standard input could not be read.");
+            }
+            return;
+        }
+        if (channel == null) {
+            StyleChecker.main(forwarded.toArray(new String[0]));
+            return;
+        }
+
+        try (SocketChannel server = channel;
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(server)));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(server)))) {
+            out.writeInt(CheckServer.MAGIC);
+
+            if (standardInput) {
+                out.writeByte(CheckServer.SOURCE);
+                CheckServer.writeString(out, "standard input");
+                CheckServer.writeString(out, format);
+                CheckServer.writeString(out, new String(System.in.readAllBytes(), Charset.defaultCharset()));
+            } else {
+                out.writeByte(CheckServer.RUN);
+                CheckServer.writeString(out, Paths.get("").toAbsolutePath().toString());
+                out.writeInt(forwarded.size());
+                for (String arg: forwarded) {
+                    CheckServer.writeString(out, arg);
+                }
+
+                out.writeBoolean(inputs.isEmpty());
+                if (inputs.isEmpty()) {
+                    System.out.println("Enter the filename of the file to check");
+                    String fileName = new BufferedReader(new InputStreamReader(System.in)).readLine();
+                    CheckServer.writeString(out, fileName == null ? "" : fileName);
+                }
+            }
+            out.flush();
+
+            byte tag;
+            while ((tag = in.readByte()) != CheckServer.END) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+
+                PrintStream target = tag == CheckServer.ERR ? System.err : System.out;
+                target.write(bytes);
+                target.flush();
+            }
+        } catch (IOException ex) {
+            System.err.println("\nERROR: The check server stopped before replying. " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package pal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for one phase of checking a file. Every phase is also counted in CheckMetrics,
+ * whether or not a recording is running. Start a recording with -XX:StartFlightRecording to see the events;
+ * they are under PAL in JDK Mission Control.
+ *
+ * In streaming mode the labels are collected while the lines are checked, so there is a single CheckLines
+ * event for the whole pass.
+ */
+@Category("PAL")
+@StackTrace(false)
+abstract class CheckEvent extends Event {
+
+    /*
+     * The phases, in the order they happen
+     */
+    static final int READ = 0;
+    static final int COLLECT_LABELS = 1;
+    static final int CHECK_LINES = 2;
+    static final int WRITE_REPORT = 3;
+    static final String[] PHASE_NAMES = {"Read", "Collect Labels", "Check Lines", "Write Report"};
+
+    @Label("File")
+    String file;
+
+    @Label("Lines")
+    long lines;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytes;
+
+    @Label("Diagnostics")
+    @Description("Errors and warnings found")
+    long diagnostics;
+
+    private transient long startNanos;
+
+    /**
+     * @return the phase the event is for, such as READ.
+     */
+    abstract int phase();
+
+    /**
+     * This method is responsible for starting the clock on the phase.
+     * @return this event.
+     */
+    CheckEvent start() {
+        startNanos = System.nanoTime();
+        begin();
+        return this;
+    }
+
+    /**
+     * This method is responsible for stopping the clock, counting the phase in CheckMetrics and committing the
+     * event if it is being recorded.
+     * @param file the file being checked.
+     * @param lines the lines the phase went through.
+     * @param bytes the bytes it read, 0 if it read none.
+     * @param diagnostics the errors and warnings it found.
+     */
+    void finish(String file, long lines, long bytes, long diagnostics) {
+        CheckMetrics.global().recordPhase(phase(), System.nanoTime() - startNanos, lines, bytes, diagnostics);
+
+        end();
+        if (shouldCommit()) {
+            this.file = file;
+            this.lines = lines;
+            this.bytes = bytes;
+            this.diagnostics = diagnostics;
+            commit();
+        }
+    }
+
+    @Name("pal.Read")
+    @Label("Read Source")
+    @Description("Reading the lines of a file into memory")
+    static final class Read extends CheckEvent {
+        @Override
+        int phase() {
+            return READ;
+        }
+    }
+
+    @Name("pal.CollectLabels")
+    @Label("Collect Labels")
+    @Description("Finding every label defined before the lines are checked")
+    static final class CollectLabels extends CheckEvent {
+        @Override
+        int phase() {
+            return COLLECT_LABELS;
+        }
+    }
+
+    @Name("pal.CheckLines")
+    @Label("Check Lines")
+    @Description("Checking every line up to the END command")
+    static final class CheckLines extends CheckEvent {
+        @Override
+        int phase() {
+            return CHECK_LINES;
+        }
+    }
+
+    @Name("pal.WriteReport")
+    @Label("Write Report")
+    @Description("Writing the report, from opening it until it is closed")
+    static final class WriteReport extends CheckEvent {
+        @Override
+        int phase() {
+            return WRITE_REPORT;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package pal;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class is responsible for counting what the checker does for as long as the program runs: the files
+ * checked, the errors found in each category, the time, lines and bytes of each phase (see CheckEvent) and how
+ * long lines take to check, kept as a histogram for each error category. It is always on and shared by every
+ * checker; a checker times its lines on its own and hands them over once its file is done, so the cost is a
+ * clock read per line.
+ *
+ * The counts are printed by -metrics and can be watched over JMX once registerMBean has been called, which the
+ * check server does.
+ */
+public class CheckMetrics implements CheckMetricsMXBean {
+
+    /*
+     * Lines are timed under the category of the error they have, or under NO_ERROR
+     */
+    static final int NO_ERROR = StyleChecker.LABEL_PROBLEM + 1;
+    private static final int CATEGORIES = NO_ERROR + 1;
+    private static final int BUCKETS = 32;
+
+    /*
+     * Each phase keeps its count, time, lines, bytes and diagnostics
+     */
+    private static final int PHASE_FIELDS = 5;
+    private static final int PHASES = CheckEvent.PHASE_NAMES.length;
+
+    private static final CheckMetrics GLOBAL = new CheckMetrics();
+
+    private final LongAdder files = new LongAdder();
+    private final AtomicLongArray counts = new AtomicLongArray(ReportFormat.LABEL_WARNINGS + 1);
+    private final AtomicLongArray phases = new AtomicLongArray(PHASES * PHASE_FIELDS);
+    private final AtomicLongArray latency = new AtomicLongArray(CATEGORIES * BUCKETS);
+
+    /**
+     * How long each line of one file took to check, before it is added to the shared counts.
+     */
+    static final class LineTimes {
+        private final long[] buckets = new long[CATEGORIES * BUCKETS];
+
+        /**
+         * @param category the category of the error found on the line, or NO_ERROR.
+         * @param nanos how long the line took.
+         */
+        void record(int category, long nanos) {
+            buckets[category * BUCKETS + bucket(nanos)]++;
+        }
+
+        void add(LineTimes other) {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += other.buckets[i];
+            }
+        }
+    }
+
+    CheckMetrics() {
+    }
+
+    /**
+     * @return the counts shared by every checker.
+     */
+    public static CheckMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * This method is responsible for making the shared counts visible over JMX as pal:type=CheckMetrics. Calling
+     * it again does nothing.
+     * @throws IllegalStateException if the bean cannot be registered.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(GLOBAL, new ObjectName("pal:type=CheckMetrics"));
+        } catch (InstanceAlreadyExistsException ex) {
+            // already registered
+        } catch (JMException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    void recordPhase(int phase, long nanos, long lines, long bytes, long diagnostics) {
+        int base = phase * PHASE_FIELDS;
+        phases.incrementAndGet(base);
+        phases.addAndGet(base + 1, nanos);
+        phases.addAndGet(base + 2, lines);
+        phases.addAndGet(base + 3, bytes);
+        phases.addAndGet(base + 4, diagnostics);
+    }
+
+    /**
+     * This method is responsible for counting a file once it has been checked. The line times are cleared.
+     * @param fileCounts the total errors, the errors of each category and the warnings.
+     * @param times how long each line took, or null if the lines were not checked.
+     */
+    void recordFile(int[] fileCounts, LineTimes times) {
+        files.increment();
+        for (int i = 0; i < fileCounts.length; i++) {
+            if (fileCounts[i] != 0) {
+                counts.addAndGet(i, fileCounts[i]);
+            }
+        }
+
+        if (times != null) {
+            for (int i = 0; i < times.buckets.length; i++) {
+                if (times.buckets[i] != 0) {
+                    latency.addAndGet(i, times.buckets[i]);
+                    times.buckets[i] = 0;
+                }
+            }
+        }
+    }
+
+    private static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+
+    private static String categoryName(int category) {
+        return category == NO_ERROR ? "No Error" : ReportFormat.COUNT_NAMES[category + 1];
+    }
+
+    @Override
+    public long getFilesChecked() {
+        return files.sum();
+    }
+
+    @Override
+    public Map<String, Long> getDiagnosticCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = ReportFormat.TOTAL_ERRORS + 1; i < ReportFormat.LABEL_WARNINGS; i++) {
+            result.put(ReportFormat.COUNT_NAMES[i], counts.get(i));
+        }
+        result.put("Warnings", counts.get(ReportFormat.LABEL_WARNINGS));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseNanos() {
+        return phaseField(1);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseLines() {
+        return phaseField(2);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseBytes() {
+        return phaseField(3);
+    }
+
+    private Map<String, Long> phaseField(int field) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int phase = 0; phase < PHASES; phase++) {
+            result.put(CheckEvent.PHASE_NAMES[phase], phases.get(phase * PHASE_FIELDS + field));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, long[]> getLineLatencyHistograms() {
+        Map<String, long[]> result = new LinkedHashMap<>();
+        for (int category = 0; category < CATEGORIES; category++) {
+            result.put(categoryName(category), histogram(category));
+        }
+        return result;
+    }
+
+    private long[] histogram(int category) {
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = latency.get(category * BUCKETS + i);
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the upper bound in nanoseconds of the bucket holding the given fraction of the lines.
+     */
+    private static long percentile(long[] histogram, long lines, double fraction) {
+        long wanted = (long) Math.ceil(lines * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= wanted) {
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("\nCheck Metrics\n");
+        summary.append("--------------------------------------------------\n");
+        summary.append("Files checked: ").append(getFilesChecked()).append(".\n\n");
+
+        summary.append(String.format("%-16s%8s%14s%14s%16s%14s%n", "Phase", "Count", "Time (ms)", "Lines", "Bytes",
+                "Diagnostics"));
+        for (int phase = 0; phase < PHASES; phase++) {
+            int base = phase * PHASE_FIELDS;
+            summary.append(String.format("%-16s%8d%14.3f%14d%16d%14d%n", CheckEvent.PHASE_NAMES[phase],
+                    phases.get(base), phases.get(base + 1) / 1e6, phases.get(base + 2), phases.get(base + 3),
+                    phases.get(base + 4)));
+        }
+
+        summary.append("\nTotal Errors: ").append(counts.get(ReportFormat.TOTAL_ERRORS)).append(".\n");
+        for (int i = ReportFormat.TOTAL_ERRORS + 1; i < ReportFormat.LABEL_WARNINGS; i++) {
+            summary.append("    ").append(counts.get(i)).append(' ').append(ReportFormat.COUNT_NAMES[i])
+                    .append(" Errors.\n");
+        }
+        summary.append("Total warnings: ").append(counts.get(ReportFormat.LABEL_WARNINGS)).append(".\n\n");
+
+        summary.append(String.format("%-20s%12s%12s%12s%12s%n", "Line time (ns)", "Lines", "p50 <", "p90 <",
+                "p99 <"));
+        for (int category = 0; category < CATEGORIES; category++) {
+            long[] histogram = histogram(category);
+            long lines = 0;
+            for (long count: histogram) {
+                lines += count;
+            }
+            if (lines == 0) {
+                continue;
+            }
+
+            summary.append(String.format("%-20s%12d%12d%12d%12d%n", categoryName(category), lines,
+                    percentile(histogram, lines, 0.5), percentile(histogram, lines, 0.9),
+                    percentile(histogram, lines, 0.99)));
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public void reset() {
+        files.reset();
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        for (int i = 0; i < phases.length(); i++) {
+            phases.set(i, 0);
+        }
+        for (int i = 0; i < latency.length(); i++) {
+            latency.set(i, 0);
+        }
+    }
+}
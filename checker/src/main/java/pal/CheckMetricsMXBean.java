@@ -0,0 +1,45 @@
+package pal;
+
+import java.util.Map;
+
+/**
+ * The management interface of CheckMetrics, registered as pal:type=CheckMetrics by CheckMetrics.registerMBean.
+ * Categories and phases are named as they are in the summary.
+ */
+public interface CheckMetricsMXBean {
+
+    long getFilesChecked();
+
+    /**
+     * @return the errors found in each category, and the warnings.
+     */
+    Map<String, Long> getDiagnosticCounts();
+
+    /**
+     * @return the time spent in each phase, in nanoseconds.
+     */
+    Map<String, Long> getPhaseNanos();
+
+    /**
+     * @return the lines each phase went through.
+     */
+    Map<String, Long> getPhaseLines();
+
+    /**
+     * @return the bytes each phase read.
+     */
+    Map<String, Long> getPhaseBytes();
+
+    /**
+     * @return for each category, and for lines without an error, how many lines took under 1, 2, 4, 8 ... ns
+     *         to check. The last bucket holds everything slower.
+     */
+    Map<String, long[]> getLineLatencyHistograms();
+
+    /**
+     * @return the text printed by -metrics.
+     */
+    String getSummary();
+
+    void reset();
+}
@@ -0,0 +1,92 @@
+package pal;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of checking a PAL source with PalChecker: every error found, the error counts by category and
+ * the warnings, all as they would appear in the .log. The errors are kept in a DiagnosticStore and their
+ * messages are only built once they are asked for.
+ */
+public class CheckResult {
+
+    private final DiagnosticStore store;
+    private final int[] counts;
+    private final List<String> warnings;
+    private List<Diagnostic> diagnostics = null;
+
+    CheckResult(DiagnosticStore store, int[] counts, List<String> warnings) {
+        this.store = store;
+        this.counts = counts;
+        this.warnings = Collections.unmodifiableList(warnings);
+    }
+
+    /**
+     * @return the errors in line order.
+     */
+    public synchronized List<Diagnostic> getDiagnostics() {
+        if (diagnostics == null) {
+            diagnostics = Collections.unmodifiableList(store.toDiagnostics());
+        }
+        return diagnostics;
+    }
+
+    /**
+     * @param category the category as named in the .log summary, such as "Invalid Opcode".
+     * @return the errors in the category in line order, none for a category that does not exist.
+     */
+    public synchronized List<Diagnostic> getDiagnostics(String category) {
+        int index = categoryIndex(category);
+        return index < 0 ? List.of() : Collections.unmodifiableList(store.filter(index - 1).toDiagnostics());
+    }
+
+    /**
+     * @return the errors in the order of the categories in the .log summary, and in line order within each.
+     */
+    public synchronized List<Diagnostic> getDiagnosticsByCategory() {
+        DiagnosticStore sorted = store.filter(-1);
+        sorted.sortByCategory();
+        return Collections.unmodifiableList(sorted.toDiagnostics());
+    }
+
+    public int getTotalErrors() {
+        return counts[ReportFormat.TOTAL_ERRORS];
+    }
+
+    /**
+     * @param category the category as named in the .log summary, such as "Invalid Opcode".
+     * @return the number of errors in the category, 0 for a category that does not exist.
+     */
+    public int getErrorCount(String category) {
+        int index = categoryIndex(category);
+        return index < 0 ? 0 : counts[index];
+    }
+
+    private static int categoryIndex(String category) {
+        for (int i = ReportFormat.TOTAL_ERRORS + 1; i < ReportFormat.LABEL_WARNINGS; i++) {
+            if (ReportFormat.COUNT_NAMES[i].equals(category)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the total errors, the errors of each category and the warnings, in the order of the .log
+     *         summary.
+     */
+    public int[] getCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * @return the warnings, such as "LTWO is never accessed."
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    public boolean hasErrors() {
+        return getTotalErrors() > 0;
+    }
+}
@@ -0,0 +1,303 @@
+package pal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class is responsible for checking files for CheckClient from a JVM that stays running, so a check does
+ * not pay for starting a JVM and warming up its compiler every time. The server listens on a Unix domain socket
+ * in the home directory by default, or on a loopback TCP port, and handles each connection on its own thread.
+ *
+ * Connections are not authenticated. Whoever can connect can have the server read and write any file its user
+ * can, so the socket is only made in a directory no one but its owner can open, and the server will not start
+ * where it cannot tell that the directory is private. A TCP port is open to every user of the machine and is only
+ * meant for single user machines or platforms without Unix domain sockets.
+ *
+ * A connection carries a single request and its reply. A request is either the arguments of a command line
+ * run, with the client's working directory, or a source to check with its report sent back in place of being
+ * written to disk. The reply is a series of frames holding what a command line run would print to standard
+ * output and standard error, followed by an end frame. Strings are sent as an int length and UTF-8 bytes.
+ *
+ * The server's CheckMetrics are registered over JMX, and -metrics prints them as they stand after the request,
+ * counting every request since the server started.
+ */
+public class CheckServer {
+
+    static final int MAGIC = 0x50414C53;  // "PALS"
+    static final byte RUN = 1;
+    static final byte SOURCE = 2;
+    static final byte OUT = 'O';
+    static final byte ERR = 'E';
+    static final byte END = 'X';
+
+    private static final int FRAME_SIZE = 64 * 1024;
+    private static final Set<PosixFilePermission> PRIVATE_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+
+    private final SocketAddress address;
+    private final ExecutorService requests = Executors.newCachedThreadPool(request -> {
+        Thread thread = new Thread(request, "check request");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param address where to listen, as given by address(String).
+     */
+    public CheckServer(SocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * This method is responsible for turning an address given on the command line into a socket address.
+     * @param address a port number for a loopback TCP port, which is not authenticated, the path of a Unix domain
+     *                socket, or null for the default socket, server.sock in .palcheck in the home directory.
+     */
+    public static SocketAddress address(String address) {
+        if (address == null || address.isEmpty()) {
+            return UnixDomainSocketAddress.of(Paths.get(System.getProperty("user.home"), ".palcheck", "server.sock"));
+        }
+        if (address.chars().allMatch(Character::isDigit)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        }
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    /**
+     * This method is responsible for accepting connections until the program is stopped.
+     * @throws IOException if the server cannot listen on its address.
+     */
+    public void run() throws IOException {
+        CheckMetrics.registerMBean();
+
+        try (ServerSocketChannel server = listen()) {
+            System.out.println("Listening on " + address + ". Press Ctrl-C to stop.");
+            if (!(address instanceof UnixDomainSocketAddress)) {
+                System.out.println("Warning: TCP connections are not authenticated, so any user of this machine can "
+                        + "run checks as you. Leave out the port to use a Unix domain socket.");
+            }
+
+            while (true) {
+                SocketChannel client = server.accept();
+                requests.execute(() -> handle(client));
+            }
+        }
+    }
+
+    private ServerSocketChannel listen() throws IOException {
+        if (!(address instanceof UnixDomainSocketAddress)) {
+            return ServerSocketChannel.open().bind(address);
+        }
+
+        /*
+         * The socket is open to whoever can reach its directory from the moment it is bound, so the directory has
+         * to be private before then. A socket file left behind by a server that was killed is removed, but not
+         * one that is still in use
+         */
+        Path socket = ((UnixDomainSocketAddress) address).getPath().toAbsolutePath();
+        requirePrivateDirectory(socket.getParent());
+        if (Files.exists(socket)) {
+            if (isListening(address)) {
+                throw new IOException("A server is already listening on " + socket + ".");
+            }
+            Files.delete(socket);
+        }
+
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(address);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(socket);
+            } catch (IOException ex) {
+                // left for the next server to remove
+            }
+        }));
+        return server;
+    }
+
+    /**
+     * This method is responsible for creating the directory of the socket open only to its owner, or making
+     * sure an existing one is.
+     * @throws IOException if the directory can be opened by other users or its permissions cannot be told.
+     */
+    private static void requirePrivateDirectory(Path directory) throws IOException {
+        try {
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PRIVATE_DIRECTORY));
+            }
+            if (!PRIVATE_DIRECTORY.containsAll(Files.getPosixFilePermissions(directory))) {
+                throw new IOException("The directory " + directory + " can be opened by other users, who could "
+                        + "connect to the socket. Use a directory only you can open, such as the default.");
+            }
+        } catch (UnsupportedOperationException ex) {
+            throw new IOException("The file system of " + directory + " cannot keep the socket private. Give "
+                    + "-server a port number instead, on a machine no one else can log in to.");
+        }
+    }
+
+    private static boolean isListening(SocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (SocketChannel channel = client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+             DataOutputStream frames = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+
+            FrameStream outFrames = new FrameStream(frames, OUT);
+            PrintStream out = new PrintStream(outFrames, true, Charset.defaultCharset());
+            PrintStream err = new PrintStream(new FrameStream(frames, ERR), true, Charset.defaultCharset());
+
+            byte kind = in.readByte();
+            if (kind == RUN) {
+                run(in, out, err);
+            } else if (kind == SOURCE) {
+                checkSource(in, outFrames, err);
+            }
+
+            out.flush();
+            err.flush();
+            synchronized (frames) {
+                frames.writeByte(END);
+                frames.flush();
+            }
+        } catch (IOException ex) {
+            // the client went away, there is no one left to tell
+        }
+    }
+
+    private static void run(DataInputStream in, PrintStream out, PrintStream err) throws IOException {
+        Path workingDirectory = Paths.get(readString(in));
+        int count = in.readInt();
+        List<String> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            args.add(readString(in));
+        }
+        String fileName = in.readBoolean() ? readString(in) : "";
+
+        if (args.contains("-watch")) {
+            err.println("\nERROR: -watch is not supported by the server.");
+            return;
+        }
+        StyleChecker.run(args, workingDirectory, () -> fileName, out, err);
+    }
+
+    private static void checkSource(DataInputStream in, OutputStream out, PrintStream err) throws IOException {
+        String name = readString(in);
+        String formatName = readString(in);
+        checkSource(name, formatName, readString(in), out, err);
+    }
+
+    /**
+     * This method is responsible for checking a source that is not in a file and writing its report to out, for
+     * a SOURCE request or for CheckClient when no server is running.
+     * @param name the name the report gives the source.
+     * @param formatName the name of the report format, as -format= takes it.
+     */
+    static void checkSource(String name, String formatName, String text, OutputStream out, PrintStream err) {
+        try {
+            StyleChecker checker = new StyleChecker(name, false);
+            checker.setFormat(ReportFormat.forName(formatName));
+
+            Writer report = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()));
+            checker.check(text, report);
+        } catch (IllegalArgumentException ex) {
+            err.println("\nERROR: " + ex.getMessage());
+        } catch (IOException ex) {
+            err.println(ex.getMessage());
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Everything written is sent as frames with a tag, one for each flush or every FRAME_SIZE bytes. The
+     * standard output and standard error of a request share a connection, so frames are written whole.
+     */
+    private static class FrameStream extends OutputStream {
+        private final DataOutputStream frames;
+        private final byte tag;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        FrameStream(DataOutputStream frames, byte tag) {
+            this.frames = frames;
+            this.tag = tag;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer.write(b);
+            if (buffer.size() >= FRAME_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            buffer.write(bytes, offset, length);
+            if (buffer.size() >= FRAME_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer.size() == 0) {
+                return;
+            }
+
+            synchronized (frames) {
+                frames.writeByte(tag);
+                frames.writeInt(buffer.size());
+                buffer.writeTo(frames);
+                frames.flush();
+            }
+            buffer.reset();
+        }
+    }
+}
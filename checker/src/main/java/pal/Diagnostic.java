@@ -0,0 +1,52 @@
+package pal;
+
+/**
+ * An error found on one line of a PAL source.
+ */
+public class Diagnostic {
+
+    private final int line;
+    private final String source;
+    private final String message;
+    private final String category;
+
+    public Diagnostic(int line, String source, String message, String category) {
+        this.line = line;
+        this.source = source;
+        this.message = message;
+        this.category = category;
+    }
+
+    /**
+     * @return the number of the line in the source, starting at 1.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the text of the line, without its comment unless the error is about the comment.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the message as it appears in the .log, such as "Invalid Opcode. MOV was not found."
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the category the error is counted in, as named in the .log summary, such as "Invalid Opcode".
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    @Override
+    public String toString() {
+        return line + ": " + source + ReportFormat.MESSAGE_SEPARATOR + message;
+    }
+}
@@ -0,0 +1,350 @@
+package pal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is responsible for holding the reported lines of a file and the error found on each. Every entry
+ * is a row of parallel arrays: the line number, the line itself (which the checker holds anyway), how much of it
+ * is shown, a message code and the operand the message names. No message is built until a report or a
+ * CheckResult asks for it. Each code knows the category it is counted in, so filtering and sorting by category
+ * work on the codes alone.
+ *
+ * A line is shown up to its comment unless the error is about the comment.
+ */
+class DiagnosticStore {
+
+    /*
+     * Message codes, NONE for a line without an error
+     */
+    static final int NONE = 0;
+    static final int NO_END_LINE_OPERATOR = 1;
+    static final int LABEL_TOO_LONG = 2;
+    static final int LABEL_HAS_DIGIT = 3;
+    static final int INVALID_OPCODE = 4;
+    static final int TOO_FEW_OPERANDS = 5;      // the detail is the opcode id
+    static final int TOO_MANY_OPERANDS = 6;     // the detail is the opcode id
+    static final int NOT_A_VALUE = 7;
+    static final int NOT_A_MEMORY_NAME = 8;
+    static final int NOT_A_MEMORY_LOCATION = 9;
+    static final int UNKNOWN_MEMORY_LOCATION = 10;
+    static final int UNKNOWN_LABEL = 11;
+
+    /*
+     * The StyleChecker category each code is counted in
+     */
+    private static final int[] CATEGORIES = {-1, StyleChecker.TOO_FEW_OPERANDS, StyleChecker.ILL_FORMED_LABEL,
+            StyleChecker.ILL_FORMED_LABEL, StyleChecker.INVALID_OPCODE, StyleChecker.TOO_FEW_OPERANDS,
+            StyleChecker.TOO_MANY_OPERANDS, StyleChecker.ILL_FORMED_OPERANDS, StyleChecker.ILL_FORMED_OPERANDS,
+            StyleChecker.WRONG_OPERAND_TYPE, StyleChecker.ILL_FORMED_OPERANDS, StyleChecker.LABEL_PROBLEM};
+
+    private int[] lines = new int[64];
+    private CharSequence[] sources = new CharSequence[64];
+    private int[] lengths = new int[64];
+    private byte[] codes = new byte[64];
+    private byte[] details = new byte[64];
+    private String[] rendered = null;  // the message of each entry added rendered, made for the first one
+    private int size = 0;
+    private final PalLexer lexer = new PalLexer();  // finds the operand a message names
+
+    /**
+     * @param code a message code.
+     * @return the category the error is counted in, or -1 for NONE.
+     */
+    static int categoryOf(int code) {
+        return CATEGORIES[code];
+    }
+
+    /**
+     * This method is responsible for adding an entry.
+     * @param line the number of the line in the source, starting at 1.
+     * @param source the raw source line.
+     * @param length how much of the line is shown.
+     * @param code the message code.
+     * @param detail the position of the operand the message names, the opcode id of an arity message, or -1.
+     */
+    void add(int line, CharSequence source, int length, int code, int detail) {
+        if (size == lines.length) {
+            int capacity = size * 2;
+            lines = Arrays.copyOf(lines, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            codes = Arrays.copyOf(codes, capacity);
+            details = Arrays.copyOf(details, capacity);
+            if (rendered != null) {
+                rendered = Arrays.copyOf(rendered, capacity);
+            }
+        }
+        lines[size] = line;
+        sources[size] = source;
+        lengths[size] = length;
+        codes[size] = (byte) code;
+        details[size] = (byte) detail;
+        size++;
+    }
+
+    /**
+     * This method is responsible for adding an entry that was rendered before, such as one from the cache. It is
+     * split back into the line and its message, which is kept as it is, with no message code of its own.
+     * @param entry the line, followed by ReportFormat.MESSAGE_SEPARATOR and the message if it has one.
+     */
+    void addRendered(int line, String entry) {
+        int separator = entry.indexOf(ReportFormat.MESSAGE_SEPARATOR);
+        if (separator < 0) {
+            add(line, entry, entry.length(), NONE, -1);
+            return;
+        }
+
+        add(line, entry.substring(0, separator), separator, NONE, -1);
+        if (rendered == null) {
+            rendered = new String[lines.length];
+        }
+        rendered[size - 1] = entry.substring(separator + ReportFormat.MESSAGE_SEPARATOR.length());
+    }
+
+    /**
+     * This method is responsible for changing the error of an entry, once a forward reference is found to be
+     * missing.
+     */
+    void setError(int index, int code, int detail) {
+        codes[index] = (byte) code;
+        details[index] = (byte) detail;
+    }
+
+    /**
+     * This method is responsible for adding every entry of another store, with its line numbers moved on.
+     * @param other the store to copy from.
+     * @param lineOffset added to each line number.
+     */
+    void append(DiagnosticStore other, int lineOffset) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.lines[i] + lineOffset, other.sources[i], other.lengths[i], other.codes[i], other.details[i]);
+            if (other.rendered != null && other.rendered[i] != null) {
+                if (rendered == null) {
+                    rendered = new String[lines.length];
+                }
+                rendered[size - 1] = other.rendered[i];
+            }
+        }
+    }
+
+    /**
+     * This method is responsible for dropping the first entries, once they have been written.
+     * @param count how many to drop.
+     */
+    void removeFirst(int count) {
+        System.arraycopy(lines, count, lines, 0, size - count);
+        System.arraycopy(sources, count, sources, 0, size - count);
+        System.arraycopy(lengths, count, lengths, 0, size - count);
+        System.arraycopy(codes, count, codes, 0, size - count);
+        System.arraycopy(details, count, details, 0, size - count);
+        Arrays.fill(sources, size - count, size, null);
+        if (rendered != null) {
+            System.arraycopy(rendered, count, rendered, 0, size - count);
+            Arrays.fill(rendered, size - count, size, null);
+        }
+        size -= count;
+    }
+
+    void removeLast() {
+        sources[--size] = null;
+        if (rendered != null) {
+            rendered[size] = null;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(sources, 0, size, null);
+        rendered = null;
+        size = 0;
+    }
+
+    /**
+     * This method is responsible for replacing each line with a String of its own, for a store that outlives the
+     * text it was checked from. A line that is a view over the caller's text or a mapped file would otherwise
+     * change along with it, and so would the messages built from it.
+     */
+    void detach() {
+        for (int i = 0; i < size; i++) {
+            sources[i] = sources[i].toString();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int line(int index) {
+        return lines[index];
+    }
+
+    int length(int index) {
+        return lengths[index];
+    }
+
+    int code(int index) {
+        return codes[index];
+    }
+
+    int detail(int index) {
+        return details[index];
+    }
+
+    /**
+     * @return the category of the error of the entry, or -1 if it has none.
+     */
+    int category(int index) {
+        return CATEGORIES[codes[index]];
+    }
+
+    /**
+     * @param category a category such as StyleChecker.ILL_FORMED_LABEL, or -1 for every error.
+     * @return a new store with only the entries with an error in the category.
+     */
+    DiagnosticStore filter(int category) {
+        DiagnosticStore filtered = new DiagnosticStore();
+        for (int i = 0; i < size; i++) {
+            if (codes[i] != NONE && (category < 0 || CATEGORIES[codes[i]] == category)) {
+                filtered.add(lines[i], sources[i], lengths[i], codes[i], details[i]);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * This method is responsible for putting the entries in order of their category, keeping the order they
+     * were added in within each category. Entries without an error come first.
+     */
+    void sortByCategory() {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) (CATEGORIES[codes[i]] + 1) << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        int[] sortedLines = new int[lines.length];
+        CharSequence[] sortedSources = new CharSequence[sources.length];
+        int[] sortedLengths = new int[lengths.length];
+        byte[] sortedCodes = new byte[codes.length];
+        byte[] sortedDetails = new byte[details.length];
+        String[] sortedRendered = rendered == null ? null : new String[rendered.length];
+        for (int i = 0; i < size; i++) {
+            int from = (int) keys[i];
+            sortedLines[i] = lines[from];
+            sortedSources[i] = sources[from];
+            sortedLengths[i] = lengths[from];
+            sortedCodes[i] = codes[from];
+            sortedDetails[i] = details[from];
+            if (rendered != null) {
+                sortedRendered[i] = rendered[from];
+            }
+        }
+        lines = sortedLines;
+        sources = sortedSources;
+        lengths = sortedLengths;
+        codes = sortedCodes;
+        details = sortedDetails;
+        rendered = sortedRendered;
+    }
+
+    /**
+     * @return the line as it is shown, up to its comment unless the error is about the comment.
+     */
+    CharSequence source(int index) {
+        CharSequence source = sources[index];
+        return lengths[index] == source.length() ? source : source.subSequence(0, lengths[index]);
+    }
+
+    /**
+     * This method is responsible for building the message of an entry.
+     * @return the message as it appears in the .log, such as "Invalid Opcode. MOV was not found.", or null if
+     *         the line has no error.
+     */
+    String message(int index) {
+        switch (codes[index]) {
+            case NO_END_LINE_OPERATOR:
+                return "End line operator is required following a comment.";
+            case LABEL_TOO_LONG:
+                return "Ill Formed Label. Limit of 5 characters.";
+            case LABEL_HAS_DIGIT:
+                return "Ill Formed Label. Label cannot contain numbers.";
+            case INVALID_OPCODE:
+                lexer.lex(sources[index]);
+                return "Invalid Opcode. " + lexer.opCode() + " was not found.";
+            case TOO_FEW_OPERANDS:
+            case TOO_MANY_OPERANDS:
+                return "Invalid number of operands. " + OpCodeRule.forId(details[index]).arityMessage;
+            case NOT_A_VALUE:
+                return "Ill Formed Operand. " + operand(index) + " is not a number or recognized memory location.";
+            case NOT_A_MEMORY_NAME:
+                return "Ill Formed Operand. " + operand(index) + " does not fit the rules for a memory location.";
+            case NOT_A_MEMORY_LOCATION:
+                return "Wrong Operand Type." + operand(index) + " should be a memory location.";
+            case UNKNOWN_MEMORY_LOCATION:
+                return "Ill Formed Operand. " + operand(index) + " is not a recognized memory location.";
+            case UNKNOWN_LABEL:
+                return "Label Error. " + operand(index) + " is not a recognized label.";
+            default:
+                return rendered != null ? rendered[index] : null;
+        }
+    }
+
+    private String operand(int index) {
+        lexer.lex(sources[index]);
+        return lexer.operand(details[index]);
+    }
+
+    /**
+     * This method is responsible for writing an entry so read can add it again, such as to a LineSpill.
+     */
+    void write(DataOutputStream out, int index) throws IOException {
+        String source = sources[index].toString();
+        out.writeInt(lines[index]);
+        out.writeInt(lengths[index]);
+        out.writeByte(codes[index]);
+        out.writeByte(details[index]);
+        out.writeInt(source.length());
+        out.writeChars(source);
+    }
+
+    /**
+     * This method is responsible for adding an entry written by write.
+     */
+    void read(DataInputStream in) throws IOException {
+        int line = in.readInt();
+        int length = in.readInt();
+        int code = in.readByte();
+        int detail = in.readByte();
+        char[] source = new char[in.readInt()];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = in.readChar();
+        }
+        add(line, new String(source), length, code, detail);
+    }
+
+    /**
+     * @return the entry as one String, the line followed by its message if it has one.
+     */
+    String entry(int index) {
+        String message = message(index);
+        return message == null ? source(index).toString() : source(index) + ReportFormat.MESSAGE_SEPARATOR + message;
+    }
+
+    /**
+     * @return a Diagnostic for every entry with an error, in the order of the store.
+     */
+    List<Diagnostic> toDiagnostics() {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (codes[i] != NONE) {
+                diagnostics.add(new Diagnostic(lines[i], source(i).toString(), message(i),
+                        ReportFormat.COUNT_NAMES[CATEGORIES[codes[i]] + 1]));
+            }
+        }
+        return diagnostics;
+    }
+}
@@ -0,0 +1,563 @@
+package pal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This class is responsible for the warnings that need the control flow of the program: code that can never be
+ * reached, loops that can never be left, registers read before anything is written to them and memory locations
+ * that are defined but never read.
+ *
+ * The checker records every line it checks as one int holding what kind of instruction it is and which
+ * registers it reads and writes. Labels, branches and memory locations are kept in separate lists since few
+ * lines have them. Lines with errors are recorded as if they were blank, so a broken branch falls through, and
+ * the memory locations a line reads only count while the line has an instruction.
+ * Once the END command is reached the lines are split into basic blocks at every label and after every branch,
+ * and each analysis is a walk over the blocks using int arrays and bitsets:
+ *
+ *   - reachability from the SRT command,
+ *   - the blocks that can still reach END or the end of the file, found walking the branches backwards, and
+ *     the strongly connected blocks that cannot, which are the loops with no way out,
+ *   - register liveness, whose registers live at SRT are the ones read before they are written on some path.
+ *
+ * Each block is visited a fixed number of times, so the whole pass is linear in the length of the program.
+ */
+class FlowAnalysis {
+
+    /*
+     * Instruction kinds, in the low byte of a line. The registers read are in the next byte and the registers
+     * written in the one after.
+     */
+    static final int NONE = 0;
+    static final int PLAIN = 1;
+    static final int START = 2;
+    static final int CONDITIONAL = 3;
+    static final int JUMP = 4;
+    static final int HALT = 5;
+
+    private static final int REGISTERS = 8;
+
+    private int size = 0;
+    private int[] lines = new int[1024];
+
+    /*
+     * Labels defined and branch targets, each as the line and the symbol id, in line order
+     */
+    private int labelCount = 0;
+    private int[] labelLines = new int[64];
+    private int[] labelIds = new int[64];
+    private int branchCount = 0;
+    private int[] branchLines = new int[64];
+    private int[] branchTargets = new int[64];
+
+    /*
+     * Memory locations defined, and each memory location read as the line and the symbol id, in line order
+     */
+    private int memoryDefinitionCount = 0;
+    private int[] memoryDefinitions = new int[16];
+    private int memoryReadCount = 0;
+    private int[] memoryReadLines = new int[16];
+    private int[] memoryReadIds = new int[16];
+
+    /**
+     * This method is responsible for starting the next line, with no instruction until one is recorded.
+     */
+    void line() {
+        if (size == lines.length) {
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+        lines[size++] = NONE;
+    }
+
+    /**
+     * @return the number of lines recorded, which is also the index of the next line.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param id the symbol id of the label defined on the current line.
+     */
+    void label(int id) {
+        addLabel(size - 1, id);
+    }
+
+    private void addLabel(int line, int id) {
+        if (labelCount == labelLines.length) {
+            labelLines = Arrays.copyOf(labelLines, labelCount * 2);
+            labelIds = Arrays.copyOf(labelIds, labelCount * 2);
+        }
+        labelLines[labelCount] = line;
+        labelIds[labelCount++] = id;
+    }
+
+    /**
+     * This method is responsible for recording the instruction on the current line.
+     * @param kind one of the instruction kinds, such as PLAIN.
+     * @param reads bit n set if Rn is read.
+     * @param writes bit n set if Rn is written.
+     */
+    void instruction(int kind, int reads, int writes) {
+        lines[size - 1] = kind | reads << 8 | writes << 16;
+    }
+
+    /**
+     * @param target the symbol id of the label the branch on the current line goes to.
+     */
+    void branch(int target) {
+        addBranch(size - 1, target);
+    }
+
+    private void addBranch(int line, int target) {
+        if (branchCount == branchLines.length) {
+            branchLines = Arrays.copyOf(branchLines, branchCount * 2);
+            branchTargets = Arrays.copyOf(branchTargets, branchCount * 2);
+        }
+        branchLines[branchCount] = line;
+        branchTargets[branchCount++] = target;
+    }
+
+    /**
+     * This method is responsible for treating a line as blank after all, once it turns out to have an error. Its
+     * branch and the memory locations it reads no longer count either.
+     * @param line the index of the line.
+     */
+    void clearInstruction(int line) {
+        lines[line] = NONE;
+    }
+
+    /**
+     * @param line the index of the line.
+     * @return the instruction recorded on the line, its kind in the low byte and the registers it reads and
+     *         writes in the next two, as they are given to instruction.
+     */
+    int instructionAt(int line) {
+        return lines[line];
+    }
+
+    /**
+     * @param id the symbol id of a memory location the current line reads.
+     */
+    void readMemory(int id) {
+        addMemoryRead(size - 1, id);
+    }
+
+    private void addMemoryRead(int line, int id) {
+        if (memoryReadCount == memoryReadLines.length) {
+            memoryReadLines = Arrays.copyOf(memoryReadLines, memoryReadCount * 2);
+            memoryReadIds = Arrays.copyOf(memoryReadIds, memoryReadCount * 2);
+        }
+        memoryReadLines[memoryReadCount] = line;
+        memoryReadIds[memoryReadCount++] = id;
+    }
+
+    /**
+     * @return the symbol ids of the memory locations read on the current line.
+     */
+    int[] memoryReadsOnLine() {
+        int from = memoryReadCount;
+        while (from > 0 && memoryReadLines[from - 1] == size - 1) {
+            from--;
+        }
+        return Arrays.copyOfRange(memoryReadIds, from, memoryReadCount);
+    }
+
+    void defineMemory(int id) {
+        if (memoryDefinitionCount == memoryDefinitions.length) {
+            memoryDefinitions = Arrays.copyOf(memoryDefinitions, memoryDefinitionCount * 2);
+        }
+        memoryDefinitions[memoryDefinitionCount++] = id;
+    }
+
+    /**
+     * This method is responsible for adding the lines of another recording after these ones, for the chunks of
+     * a file checked in parallel.
+     * @param other the lines that follow.
+     * @param from the symbol table the ids of the other recording come from.
+     * @param into the symbol table of this recording.
+     */
+    void append(FlowAnalysis other, SymbolTable from, SymbolTable into) {
+        int[] ids = new int[from.size()];
+        Arrays.fill(ids, -1);
+        int offset = size;
+
+        if (size + other.size > lines.length) {
+            lines = Arrays.copyOf(lines, Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.lines, 0, lines, size, other.size);
+        size += other.size;
+
+        for (int i = 0; i < other.labelCount; i++) {
+            addLabel(offset + other.labelLines[i], translate(other.labelIds[i], ids, from, into));
+        }
+        for (int i = 0; i < other.branchCount; i++) {
+            addBranch(offset + other.branchLines[i], translate(other.branchTargets[i], ids, from, into));
+        }
+
+        for (int i = 0; i < other.memoryDefinitionCount; i++) {
+            defineMemory(translate(other.memoryDefinitions[i], ids, from, into));
+        }
+        for (int i = 0; i < other.memoryReadCount; i++) {
+            addMemoryRead(offset + other.memoryReadLines[i], translate(other.memoryReadIds[i], ids, from, into));
+        }
+    }
+
+    private static int translate(int id, int[] ids, SymbolTable from, SymbolTable into) {
+        if (ids[id] < 0) {
+            ids[id] = into.intern(from.name(id));
+        }
+        return ids[id];
+    }
+
+    void clear() {
+        size = 0;
+        labelCount = 0;
+        branchCount = 0;
+        memoryDefinitionCount = 0;
+        memoryReadCount = 0;
+    }
+
+    /**
+     * This method is responsible for running every analysis over the lines recorded.
+     * @param symbols the table the ids were recorded from, to name the labels and memory locations.
+     * @return the warnings, unreachable code first, then loops that never exit, then registers read before they
+     *         are written and memory locations never read.
+     */
+    List<String> warnings(SymbolTable symbols) {
+        List<String> warnings = new ArrayList<>();
+        if (size == 0) {
+            return warnings;
+        }
+
+        /*
+         * A branch goes to the first line its label is defined on. A label that is not on a recorded line, such
+         * as one after END, takes the branch out of the program.
+         */
+        int[] firstLabel = new int[symbols.size()];
+        Arrays.fill(firstLabel, -1);
+        for (int i = labelCount - 1; i >= 0; i--) {
+            firstLabel[labelIds[i]] = i;
+        }
+
+        /*
+         * Split the lines into basic blocks
+         */
+        BitSet leaders = new BitSet(size);
+        leaders.set(0);
+        for (int i = 0; i < labelCount; i++) {
+            leaders.set(labelLines[i]);
+        }
+        int entryLine = 0;
+        for (int line = size - 1; line >= 0; line--) {
+            int kind = lines[line] & 0xFF;
+            if (kind == START) {
+                entryLine = line;
+            } else if (kind >= CONDITIONAL && line + 1 < size) {
+                leaders.set(line + 1);
+            }
+        }
+        leaders.set(entryLine);
+
+        int blocks = leaders.cardinality();
+        int[] blockStart = new int[blocks + 1];
+        int[] labelBlock = new int[labelCount];
+        int entry = 0;
+        for (int block = 0, line = leaders.nextSetBit(0), label = 0; line >= 0; line = leaders.nextSetBit(line + 1)) {
+            blockStart[block] = line;
+            while (label < labelCount && labelLines[label] == line) {
+                labelBlock[label++] = block;
+            }
+            if (line == entryLine) {
+                entry = block;
+            }
+            block++;
+        }
+        blockStart[blocks] = size;
+
+        /*
+         * Up to two successors for each block, -1 for none, and whether it can leave the program
+         */
+        int[] successors = new int[2 * blocks];
+        Arrays.fill(successors, -1);
+        BitSet exits = new BitSet(blocks);
+        for (int block = 0, branch = 0; block < blocks; block++) {
+            int last = blockStart[block + 1] - 1;
+            int kind = lines[last] & 0xFF;
+            int next = block + 1 < blocks ? block + 1 : -1;
+
+            while (branch < branchCount && branchLines[branch] < last) {
+                branch++;
+            }
+            int target = -1;
+            if (kind == CONDITIONAL || kind == JUMP) {
+                int id = branchTargets[branch];
+                int label = id >= 0 && id < firstLabel.length ? firstLabel[id] : -1;
+                target = label >= 0 ? labelBlock[label] : -1;
+                if (target < 0) {
+                    exits.set(block);
+                }
+            }
+
+            if (kind == HALT) {
+                exits.set(block);
+            } else if (kind == JUMP) {
+                successors[2 * block] = target;
+            } else {
+                successors[2 * block] = next;
+                if (next < 0) {
+                    exits.set(block);
+                }
+                if (kind == CONDITIONAL) {
+                    successors[2 * block + 1] = target;
+                }
+            }
+        }
+
+        /*
+         * Reachability from the SRT command
+         */
+        BitSet reachable = new BitSet(blocks);
+        int[] stack = new int[blocks];
+        int top = 0;
+        reachable.set(entry);
+        stack[top++] = entry;
+        while (top > 0) {
+            int block = stack[--top];
+            for (int edge = 2 * block; edge < 2 * block + 2; edge++) {
+                int successor = successors[edge];
+                if (successor >= 0 && !reachable.get(successor)) {
+                    reachable.set(successor);
+                    stack[top++] = successor;
+                }
+            }
+        }
+
+        boolean inUnreachableCode = false;
+        for (int block = 0; block < blocks; block++) {
+            if (reachable.get(block)) {
+                inUnreachableCode = false;
+                continue;
+            }
+            for (int line = blockStart[block]; !inUnreachableCode && line < blockStart[block + 1]; line++) {
+                if ((lines[line] & 0xFF) != NONE) {
+                    warnings.add("The code at " + place(line, symbols) + " is never reached.");
+                    inUnreachableCode = true;
+                }
+            }
+        }
+
+        /*
+         * The reachable blocks that cannot get to an exit, then the loops among them that nothing leaves
+         */
+        int[] predecessorStart = new int[blocks + 1];
+        for (int edge = 0; edge < successors.length; edge++) {
+            if (successors[edge] >= 0 && reachable.get(edge / 2)) {
+                predecessorStart[successors[edge] + 1]++;
+            }
+        }
+        for (int block = 0; block < blocks; block++) {
+            predecessorStart[block + 1] += predecessorStart[block];
+        }
+        int[] predecessors = new int[predecessorStart[blocks]];
+        int[] filled = Arrays.copyOf(predecessorStart, blocks);
+        for (int edge = 0; edge < successors.length; edge++) {
+            if (successors[edge] >= 0 && reachable.get(edge / 2)) {
+                predecessors[filled[successors[edge]]++] = edge / 2;
+            }
+        }
+
+        BitSet canExit = new BitSet(blocks);
+        top = 0;
+        for (int block = exits.nextSetBit(0); block >= 0; block = exits.nextSetBit(block + 1)) {
+            if (reachable.get(block)) {
+                canExit.set(block);
+                stack[top++] = block;
+            }
+        }
+        while (top > 0) {
+            int block = stack[--top];
+            for (int i = predecessorStart[block]; i < predecessorStart[block + 1]; i++) {
+                if (!canExit.get(predecessors[i])) {
+                    canExit.set(predecessors[i]);
+                    stack[top++] = predecessors[i];
+                }
+            }
+        }
+
+        BitSet trapped = (BitSet) reachable.clone();
+        trapped.andNot(canExit);
+        if (!trapped.isEmpty()) {
+            int[] component = components(trapped, successors, blocks);
+            BitSet leaves = new BitSet(blocks);
+            for (int block = trapped.nextSetBit(0); block >= 0; block = trapped.nextSetBit(block + 1)) {
+                for (int edge = 2 * block; edge < 2 * block + 2; edge++) {
+                    if (successors[edge] >= 0 && component[successors[edge]] != component[block]) {
+                        leaves.set(component[block]);
+                    }
+                }
+            }
+
+            /*
+             * Name each loop after its first labelled block, every loop has one since only a branch goes back
+             */
+            BitSet named = new BitSet(blocks);
+            for (int block = trapped.nextSetBit(0); block >= 0; block = trapped.nextSetBit(block + 1)) {
+                int loop = component[block];
+                if (!leaves.get(loop) && !named.get(loop) && hasLabel(blockStart[block])) {
+                    warnings.add("The loop at " + place(blockStart[block], symbols) + " never exits.");
+                    named.set(loop);
+                }
+            }
+        }
+
+        /*
+         * Register liveness, each block going back on the list whenever a block after it gains a live register
+         */
+        int[] use = new int[blocks];
+        int[] def = new int[blocks];
+        int[] liveIn = new int[blocks];
+        for (int block = reachable.nextSetBit(0); block >= 0; block = reachable.nextSetBit(block + 1)) {
+            for (int line = blockStart[block]; line < blockStart[block + 1]; line++) {
+                int reads = lines[line] >>> 8 & 0xFF;
+                use[block] |= reads & ~def[block];
+                def[block] |= lines[line] >>> 16 & 0xFF;
+            }
+            liveIn[block] = use[block];
+        }
+
+        BitSet queued = (BitSet) reachable.clone();
+        int[] queue = new int[blocks];
+        int head = 0;
+        int count = 0;
+        for (int block = reachable.previousSetBit(blocks - 1); block >= 0; block = reachable.previousSetBit(block - 1)) {
+            queue[count++] = block;
+        }
+        while (count > 0) {
+            int block = queue[head];
+            head = (head + 1) % blocks;
+            count--;
+            queued.clear(block);
+
+            int liveOut = 0;
+            for (int edge = 2 * block; edge < 2 * block + 2; edge++) {
+                if (successors[edge] >= 0) {
+                    liveOut |= liveIn[successors[edge]];
+                }
+            }
+            int live = use[block] | liveOut & ~def[block];
+            if (live != liveIn[block]) {
+                liveIn[block] = live;
+                for (int i = predecessorStart[block]; i < predecessorStart[block + 1]; i++) {
+                    if (!queued.get(predecessors[i])) {
+                        queued.set(predecessors[i]);
+                        queue[(head + count++) % blocks] = predecessors[i];
+                    }
+                }
+            }
+        }
+        for (int register = 0; register < REGISTERS; register++) {
+            if ((liveIn[entry] & 1 << register) != 0) {
+                warnings.add("R" + register + " may be read before it is written.");
+            }
+        }
+
+        /*
+         * Memory locations
+         */
+        BitSet memoryRead = new BitSet();
+        for (int i = 0; i < memoryReadCount; i++) {
+            if ((lines[memoryReadLines[i]] & 0xFF) != NONE) {
+                memoryRead.set(memoryReadIds[i]);
+            }
+        }
+        BitSet reported = new BitSet();
+        for (int i = 0; i < memoryDefinitionCount; i++) {
+            int id = memoryDefinitions[i];
+            if (!memoryRead.get(id) && !reported.get(id)) {
+                warnings.add(symbols.name(id) + " is defined but never read.");
+                reported.set(id);
+            }
+        }
+        return warnings;
+    }
+
+    /**
+     * This method is responsible for numbering the strongly connected components of the given blocks with
+     * Tarjan's algorithm, kept on explicit stacks so a long program cannot overflow the call stack.
+     * @return the component of each block, -1 for blocks not given.
+     */
+    private static int[] components(BitSet blocks, int[] successors, int count) {
+        int[] component = new int[count];
+        int[] index = new int[count];
+        int[] low = new int[count];
+        Arrays.fill(component, -1);
+        Arrays.fill(index, -1);
+
+        int[] path = new int[count];
+        int pathSize = 0;
+        int[] calls = new int[count];
+        int[] nextEdge = new int[count];
+        int callCount = 0;
+        int visited = 0;
+        int components = 0;
+
+        for (int root = blocks.nextSetBit(0); root >= 0; root = blocks.nextSetBit(root + 1)) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            index[root] = low[root] = visited++;
+            path[pathSize++] = root;
+            calls[callCount] = root;
+            nextEdge[callCount++] = 0;
+
+            while (callCount > 0) {
+                int block = calls[callCount - 1];
+                if (nextEdge[callCount - 1] < 2) {
+                    int successor = successors[2 * block + nextEdge[callCount - 1]++];
+                    if (successor < 0 || !blocks.get(successor)) {
+                        continue;
+                    }
+                    if (index[successor] < 0) {
+                        index[successor] = low[successor] = visited++;
+                        path[pathSize++] = successor;
+                        calls[callCount] = successor;
+                        nextEdge[callCount++] = 0;
+                    } else if (component[successor] < 0) {
+                        low[block] = Math.min(low[block], index[successor]);
+                    }
+                    continue;
+                }
+
+                callCount--;
+                if (callCount > 0) {
+                    int caller = calls[callCount - 1];
+                    low[caller] = Math.min(low[caller], low[block]);
+                }
+                if (low[block] == index[block]) {
+                    int member;
+                    do {
+                        member = path[--pathSize];
+                        component[member] = components;
+                    } while (member != block);
+                    components++;
+                }
+            }
+        }
+        return component;
+    }
+
+    private boolean hasLabel(int line) {
+        return Arrays.binarySearch(labelLines, 0, labelCount, line) >= 0;
+    }
+
+    /**
+     * @return the label on the line, or the line number if it has none.
+     */
+    private String place(int line, SymbolTable symbols) {
+        int label = Arrays.binarySearch(labelLines, 0, labelCount, line);
+        return label >= 0 ? symbols.name(labelIds[label]) : "line " + (line + 1);
+    }
+}
@@ -0,0 +1,97 @@
+package pal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * This class is responsible for a machine readable report in JSON Lines: one JSON object per line. The first
+ * object describes the report, then there is one object for every reported line, and the last object holds the
+ * summary. Each object has a "type" of report, line or summary.
+ *
+ * {"type":"line","line":3,"source":"MOVE 5, R6","message":"Invalid Opcode. ..."}
+ *
+ * The line is the line number in the source file, counting blank and comment lines. The message is left out for
+ * lines without an error.
+ */
+public class JsonLinesFormat implements ReportFormat {
+
+    private static final String[] COUNT_KEYS = {"totalErrors", "illFormedLabel", "invalidOpcode", "tooFewOperands",
+            "tooManyOperands", "illFormedOperands", "wrongOperandType", "labelProblem", "warnings"};
+
+    @Override
+    public String extension() {
+        return ".jsonl";
+    }
+
+    @Override
+    public void header(Writer output, String inputFileName) throws IOException {
+        output.write("{\"type\":\"report\",\"file\":");
+        writeString(output, inputFileName);
+        output.write(",\"rulesVersion\":");
+        writeString(output, StyleChecker.RULES_VERSION);
+        output.write("}\n");
+    }
+
+    @Override
+    public void line(Writer output, int entry, int lineNumber, CharSequence source, String message)
+            throws IOException {
+        output.write("{\"type\":\"line\",\"line\":");
+        output.write(Integer.toString(lineNumber));
+        output.write(",\"source\":");
+        writeString(output, source);
+        if (message != null) {
+            output.write(",\"message\":");
+            writeString(output, message);
+        }
+        output.write("}\n");
+    }
+
+    @Override
+    public void summary(Writer output, int[] counts, List<String> warnings) throws IOException {
+        output.write("{\"type\":\"summary\"");
+        for (int i = 0; i < COUNT_KEYS.length; i++) {
+            output.write(",\"" + COUNT_KEYS[i] + "\":" + counts[i]);
+        }
+
+        output.write(",\"warningMessages\":[");
+        for (int i = 0; i < warnings.size(); i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            writeString(output, warnings.get(i));
+        }
+        output.write("]}\n");
+    }
+
+    private static void writeString(Writer output, CharSequence value) throws IOException {
+        output.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    output.write("\\\"");
+                    break;
+                case '\\':
+                    output.write("\\\\");
+                    break;
+                case '\n':
+                    output.write("\\n");
+                    break;
+                case '\r':
+                    output.write("\\r");
+                    break;
+                case '\t':
+                    output.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        output.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        output.write(c);
+                    }
+            }
+        }
+        output.write('"');
+    }
+}
@@ -0,0 +1,99 @@
+package pal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class is responsible for holding checked lines on disk while the report waits on a branch before them in
+ * streaming mode. The report is written in order, so a line cannot go out before a branch above it is resolved,
+ * and a branch to a label that is never defined holds every line after it until the end of the file. Once too
+ * many lines are held they are written to a temporary file in order instead and read back once every branch is
+ * resolved, so only the branches still waiting stay in memory. The file is deleted when this is closed.
+ *
+ * A failure to write is kept until the lines are read back, like in the ReportWriter.
+ */
+class LineSpill implements Closeable {
+
+    private final Path file;
+    private final DataOutputStream out;
+    private DataInputStream in = null;
+    private IOException failure = null;
+    private int written = 0;
+    private int read = 0;
+
+    /**
+     * Creates the temporary file.
+     */
+    LineSpill() throws IOException {
+        file = Files.createTempFile("pal", ".lines");
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+    }
+
+    /**
+     * This method is responsible for moving the first entries of a store to the end of the file.
+     * @param diagnostics the store the entries are dropped from.
+     * @param count how many to move.
+     */
+    void write(DiagnosticStore diagnostics, int count) {
+        if (failure == null) {
+            try {
+                for (int i = 0; i < count; i++) {
+                    diagnostics.write(out, i);
+                }
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        diagnostics.removeFirst(count);
+        written += count;
+    }
+
+    /**
+     * This method is responsible for reading the next entry back, once every entry has been written.
+     * @param diagnostics the store the entry is added to.
+     * @return false if every entry has been read.
+     * @throws IOException if the entries could not be written or read back.
+     */
+    boolean read(DiagnosticStore diagnostics) throws IOException {
+        if (in == null) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        }
+
+        if (read == written) {
+            return false;
+        }
+        diagnostics.read(in);
+        read++;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (in != null) {
+                in.close();
+            } else {
+                out.close();
+            }
+        } catch (IOException ex) {
+            // the file is deleted anyway
+        }
+        Files.deleteIfExists(file);
+    }
+}
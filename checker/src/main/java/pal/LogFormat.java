@@ -0,0 +1,66 @@
+package pal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This class is responsible for the .log layout: the header, the numbered lines with their errors underneath,
+ * and a summary of the errors by category followed by the warnings.
+ */
+public class LogFormat implements ReportFormat {
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    @Override
+    public String extension() {
+        return ".log";
+    }
+
+    @Override
+    public void header(Writer output, String inputFileName) throws IOException {
+        final String heading = "PAL Compiler";
+        final String myName = "Matt Kline";
+        final String todaysDate = new SimpleDateFormat("MM-dd-yyyy").format(new Date());
+        final String className = "CS 3210";
+        final String readFrom = "Program was read from " + inputFileName;
+
+        output.write(heading + "\n" + myName + "\n" + todaysDate + "\n" + className + "\n" + "\n" + readFrom);
+        output.write(NEWLINE);
+    }
+
+    @Override
+    public void line(Writer output, int entry, int lineNumber, CharSequence source, String message)
+            throws IOException {
+        output.write(Integer.toString(entry));
+        output.write(". ");
+        output.append(source);
+        if (message != null) {
+            output.write(MESSAGE_SEPARATOR);
+            output.write(message);
+        }
+        output.write(NEWLINE);
+    }
+
+    @Override
+    public void summary(Writer output, int[] counts, List<String> warnings) throws IOException {
+        output.write("\nSummary" + "\n" + "--------------------------------------------------" + NEWLINE);
+        output.write("Total Errors: " + counts[TOTAL_ERRORS] + "." + NEWLINE);
+        for (int i = 1; i < LABEL_WARNINGS; i++) {
+            if (counts[i] > 0)
+                output.write("    " + counts[i] + " " + COUNT_NAMES[i] + " Errors." + NEWLINE);
+        }
+
+        output.write(NEWLINE);
+        output.write("Total warnings: " + counts[LABEL_WARNINGS] + "." + NEWLINE);
+        if (counts[LABEL_WARNINGS] > 0)
+            for (String warning: warnings)
+                output.write("    " + warning + NEWLINE);
+        if (counts[TOTAL_ERRORS] > 0)
+            output.write("\nPAL Compile completed with errors." + NEWLINE);
+        else
+            output.write("\nPAL Compile completed successfully." + NEWLINE);
+    }
+}
@@ -0,0 +1,145 @@
+package pal;
+
+/**
+ * This class is responsible for describing what each opcode accepts: how many operands it takes and which
+ * classes of operand may fill each slot. An operand is classified once into a bitmask of the classes it
+ * belongs to, so checking a slot is a single mask test against the rule.
+ *
+ * The slot kinds also say which operands an opcode reads and which it writes, which is what FlowAnalysis
+ * follows through the program.
+ *
+ * Each rule has an id, which is its position in RULES. Opcodes are interned into every SymbolTable first, in the
+ * order of RULES, so the id is also the symbol id of the opcode, and PalMachine switches on the same ids. Adding
+ * an opcode takes a new id and a new entry in RULES.
+ */
+public class OpCodeRule {
+
+    /*
+     * Operand classes
+     */
+    static final int REGISTER = 1;
+    static final int MEMORY_LOCATION = 2;   // defined by an earlier DEF
+    static final int DIGIT = 4;             // holds a digit, which is how numbers are told apart
+    static final int LABEL = 8;             // defined somewhere in the file
+    static final int MEMORY_NAME = 16;      // fits the rules for naming a new memory location
+
+    /*
+     * Slot kinds, each with the operand classes it allows and the error reported when none of them match
+     */
+    static final int VALUE = 0;
+    static final int REGISTER_OR_NUMBER = 1;
+    static final int DESTINATION = 2;
+    static final int REGISTER_ONLY = 3;
+    static final int NEW_MEMORY_LOCATION = 4;
+    static final int BRANCH_TARGET = 5;
+    static final int SOURCE = 6;            // read only
+    static final int UPDATED = 7;           // read, then written
+
+    private static final int[] ALLOWED = {REGISTER | MEMORY_LOCATION | DIGIT, REGISTER | DIGIT,
+            REGISTER | MEMORY_LOCATION, REGISTER, MEMORY_NAME, LABEL, REGISTER | MEMORY_LOCATION,
+            REGISTER | MEMORY_LOCATION};
+    private static final boolean[] READS = {true, true, false, false, false, false, true, true};
+    private static final boolean[] WRITES = {false, false, true, false, false, false, false, true};
+
+    /*
+     * Opcode ids
+     */
+    static final int DEF = 0;
+    static final int COPY = 1;
+    static final int MOVE = 2;
+    static final int ADD = 3;
+    static final int INC = 4;
+    static final int SUB = 5;
+    static final int DEC = 6;
+    static final int MUL = 7;
+    static final int DIV = 8;
+    static final int BEQ = 9;
+    static final int BGT = 10;
+    static final int BR = 11;
+
+    static final OpCodeRule[] RULES = byId(
+            new OpCodeRule(DEF, "DEF", true, NEW_MEMORY_LOCATION, REGISTER_ONLY),
+            new OpCodeRule(COPY, "COPY", false, SOURCE, DESTINATION),
+            new OpCodeRule(MOVE, "MOVE", false, VALUE, DESTINATION),
+            new OpCodeRule(ADD, "ADD", false, REGISTER_OR_NUMBER, REGISTER_OR_NUMBER, DESTINATION),
+            new OpCodeRule(INC, "INC", false, UPDATED),
+            new OpCodeRule(SUB, "SUB", false, REGISTER_OR_NUMBER, REGISTER_OR_NUMBER, DESTINATION),
+            new OpCodeRule(DEC, "DEC", false, UPDATED),
+            new OpCodeRule(MUL, "MUL", false, REGISTER_OR_NUMBER, REGISTER_OR_NUMBER, DESTINATION),
+            new OpCodeRule(DIV, "DIV", false, REGISTER_OR_NUMBER, REGISTER_OR_NUMBER, DESTINATION),
+            new OpCodeRule(BEQ, "BEQ", false, VALUE, VALUE, BRANCH_TARGET),
+            new OpCodeRule(BGT, "BGT", false, VALUE, VALUE, BRANCH_TARGET),
+            new OpCodeRule(BR, "BR", false, BRANCH_TARGET));
+
+    final int id;
+    final String name;
+    final int arity;
+    final String arityMessage;
+    final int[] slots;
+    final int[] allowed;
+    final int labelSlot;                  // the branch target, or -1
+    final boolean conditional;            // a branch that compares operands before it jumps
+    final boolean definesMemoryLocation;  // the first operand becomes a memory location
+    final int readSlots;                  // bit i set if operand i is read
+    final int writeSlots;                 // bit i set if operand i is written
+
+    /**
+     * @param id the opcode id, such as COPY.
+     * @param name the opcode.
+     * @param definesMemoryLocation true if the first operand becomes a memory location once the line is valid.
+     * @param slots the kind of each operand slot, in order. At most one may be a BRANCH_TARGET.
+     */
+    OpCodeRule(int id, String name, boolean definesMemoryLocation, int... slots) {
+        this.id = id;
+        this.name = name;
+        this.arity = slots.length;
+        this.arityMessage = slots.length == 1 ? "This command should have a single operand."
+                : "This command should have exactly " + slots.length + " operands.";
+        this.slots = slots;
+        this.allowed = new int[slots.length];
+        this.definesMemoryLocation = definesMemoryLocation;
+
+        int labelSlot = -1;
+        int readSlots = 0;
+        int writeSlots = 0;
+        for (int i = 0; i < slots.length; i++) {
+            allowed[i] = ALLOWED[slots[i]];
+            if (slots[i] == BRANCH_TARGET) {
+                labelSlot = i;
+            }
+            if (READS[slots[i]]) {
+                readSlots |= 1 << i;
+            }
+            if (WRITES[slots[i]]) {
+                writeSlots |= 1 << i;
+            }
+        }
+        this.labelSlot = labelSlot;
+        this.conditional = labelSlot >= 0 && slots.length > 1;
+        this.readSlots = readSlots;
+        this.writeSlots = writeSlots;
+    }
+
+    /**
+     * This method is responsible for putting each rule at the position of its id.
+     * @throws IllegalStateException if the ids do not number the rules from 0 without a gap.
+     */
+    private static OpCodeRule[] byId(OpCodeRule... rules) {
+        OpCodeRule[] byId = new OpCodeRule[rules.length];
+        for (OpCodeRule rule: rules) {
+            if (rule.id < 0 || rule.id >= rules.length || byId[rule.id] != null) {
+                throw new IllegalStateException("The id of " + rule.name + " is not the next free position.");
+            }
+            byId[rule.id] = rule;
+        }
+        return byId;
+    }
+
+    /**
+     * @param opCodeId the symbol table id of an opcode.
+     * @return the rule for the opcode.
+     */
+    static OpCodeRule forId(int opCodeId) {
+        return RULES[opCodeId];
+    }
+}
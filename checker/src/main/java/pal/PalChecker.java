@@ -0,0 +1,113 @@
+package pal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class is responsible for checking PAL sources from inside another program. It gives the same errors
+ * and warnings as the .log, as a CheckResult, and writes nothing to disk.
+ *
+ * One PalChecker can be shared by any number of threads. Each call borrows a checker from a pool of idle ones,
+ * or makes one if none is idle, and gives it back reset once the call is done. A checker keeps its symbol
+ * table and lists between calls, so a steady stream of small sources is checked without making new ones. They
+ * stay as large as the longest source the checker has read, so one that has read more than MAX_POOLED_LINES
+ * is dropped rather than kept idle.
+ *
+ *   PalChecker checker = new PalChecker();
+ *   CheckResult result = checker.check("      SRT\n      MOV 1, R1\n      END\n");
+ *
+ * A source without errors can also be compiled and run:
+ *
+ *   PalMachine machine = new PalMachine(checker.compile(source), false);
+ *   machine.run(1000000);
+ */
+public class PalChecker {
+
+    static final int MAX_POOLED_LINES = 16384;
+
+    private final BlockingQueue<StyleChecker> idle;
+
+    /**
+     * Creates a checker that keeps up to two idle checkers per core.
+     */
+    public PalChecker() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param maxIdle how many idle checkers to keep for later calls. Checkers given back beyond this are
+     *                dropped.
+     */
+    public PalChecker(int maxIdle) {
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    }
+
+    /**
+     * This method is responsible for checking a PAL source held in memory.
+     * @param source the program. Lines end at \n, \r\n or \r.
+     * @return the errors and warnings found.
+     */
+    public CheckResult check(CharSequence source) {
+        StyleChecker checker = borrow();
+        try {
+            checker.readText(source);
+            return checker.checkForResult();
+        } finally {
+            giveBack(checker);
+        }
+    }
+
+    /**
+     * This method is responsible for checking a PAL source file.
+     * @param file the program.
+     * @return the errors and warnings found.
+     * @throws IOException if the file cannot be read.
+     */
+    public CheckResult check(Path file) throws IOException {
+        StyleChecker checker = borrow();
+        try (PalInput input = PalInput.open(file)) {
+            checker.readInput(input);
+            return checker.checkForResult();
+        } finally {
+            giveBack(checker);
+        }
+    }
+
+    /**
+     * This method is responsible for checking a PAL source and lowering it into a program PalMachine can run.
+     * @param source the program.
+     * @return the program.
+     * @throws IllegalArgumentException if the source has errors or a number in it is not octal.
+     */
+    public PalProgram compile(CharSequence source) {
+        StyleChecker checker = borrow();
+        try {
+            checker.readText(source);
+            CheckResult result = checker.checkForResult();
+            if (result.hasErrors()) {
+                throw new IllegalArgumentException("The program has " + result.getTotalErrors() + " errors.");
+            }
+            return checker.compile();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            giveBack(checker);
+        }
+    }
+
+    private StyleChecker borrow() {
+        StyleChecker checker = idle.poll();
+        return checker != null ? checker : new StyleChecker();
+    }
+
+    private void giveBack(StyleChecker checker) {
+        if (checker.linesRead() > MAX_POOLED_LINES) {
+            return;
+        }
+        checker.reset();
+        idle.offer(checker);
+    }
+}
@@ -0,0 +1,340 @@
+package pal;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This class is responsible for reading the lines of a PAL source. A regular file is memory mapped and its
+ * lines are found by scanning the mapped bytes for line breaks; each line is handed out as a view over the
+ * mapping, so no String is made until the checker needs one for the report. Standard input ("-") and anything
+ * else that cannot be mapped, such as a pipe, is read through a BufferedReader instead. A file ending in .gz
+ * and an entry of a zip bundle are also read that way, decompressed as their lines are asked for, so they never
+ * need to be extracted to disk.
+ *
+ * Lines end at \n, \r\n or \r, and a last line without a line break is still returned. A line holding bytes
+ * outside ASCII is decoded with the default charset, the same way Scanner reads the file.
+ *
+ * A mapped file is scanned by StructuralScan, which finds the colon and semicolon of each line in the same pass
+ * as its line break. The line carries them to PalLexer, and a file can be split between lines to be scanned on
+ * several threads at once.
+ */
+public class PalInput implements Closeable {
+
+    public static final String GZIP_EXTENSION = ".gz";
+
+    /*
+     * The buffer of a decompressing stream. Lines are read through a BufferedReader on top of it.
+     */
+    private static final int INFLATE_BUFFER_SIZE = 1 << 16;
+
+    /*
+     * A file is not split into parts smaller than this when it is read on several threads.
+     */
+    private static final int MIN_BYTES_PER_PART = 1 << 20;
+
+    /*
+     * Large files are mapped a window at a time. A window always starts at the beginning of a line.
+     */
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final BufferedReader reader;
+    private final boolean standardInput;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+    private long charsRead = 0;  // not mapped only
+    private final int[] structure = new int[4];  // mapped only, the last line found by StructuralScan
+
+    /**
+     * A line of a mapped file. Every byte is ASCII, so each one is a char. A line found by StructuralScan knows
+     * where its first colon and semicolon are; a part of one does not.
+     */
+    static final class ByteLine implements CharSequence {
+        static final int UNKNOWN = -2;
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int length;
+        final int colon;      // -1 if there is none
+        final int semicolon;  // -1 if there is none
+
+        ByteLine(ByteBuffer buffer, int start, int length, int colon, int semicolon) {
+            this.buffer = buffer;
+            this.start = start;
+            this.length = length;
+            this.colon = colon;
+            this.semicolon = semicolon;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) buffer.get(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteLine(buffer, this.start + start, end - start, UNKNOWN, UNKNOWN);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private PalInput(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.reader = null;
+        this.standardInput = false;
+        this.size = channel.size();
+        map(0);
+    }
+
+    private PalInput(InputStream in, boolean standardInput) {
+        this.channel = null;
+        this.reader = new BufferedReader(new InputStreamReader(in, Charset.defaultCharset()));
+        this.standardInput = standardInput;
+        this.size = -1;
+    }
+
+    /**
+     * This method is responsible for opening a source for reading.
+     * @param fileName the file to read, or - for standard input.
+     * @throws java.nio.file.NoSuchFileException if the file does not exist.
+     */
+    public static PalInput open(String fileName) throws IOException {
+        if ("-".equals(fileName)) {
+            return new PalInput(System.in, true);
+        }
+        return open(Paths.get(fileName));
+    }
+
+    /**
+     * This method is responsible for opening a file for reading.
+     * @throws java.nio.file.NoSuchFileException if the file does not exist.
+     */
+    public static PalInput open(Path path) throws IOException {
+        if (path.toString().endsWith(GZIP_EXTENSION)) {
+            return read(Files.newInputStream(path), true);
+        }
+        if (Files.isRegularFile(path)) {
+            return new PalInput(FileChannel.open(path, StandardOpenOption.READ));
+        }
+        return new PalInput(Files.newInputStream(path), false);
+    }
+
+    /**
+     * This method is responsible for reading a source from a stream of the caller's, such as an entry of a zip
+     * bundle. The stream is closed with the input.
+     * @param in the stream.
+     * @param gzip true if the stream is gzip compressed.
+     * @throws java.util.zip.ZipException if a gzip stream has no valid header.
+     */
+    public static PalInput read(InputStream in, boolean gzip) throws IOException {
+        try {
+            return new PalInput(gzip ? new GZIPInputStream(in, INFLATE_BUFFER_SIZE) : in, false);
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return true if the source is a mapped file, which is the only kind that can be hashed.
+     */
+    public boolean isMapped() {
+        return channel != null;
+    }
+
+    /**
+     * This method is responsible for adding every byte of a mapped file to a digest. Reading lines is not
+     * affected.
+     */
+    public void updateDigest(MessageDigest digest) throws IOException {
+        for (long start = 0; start < size; start += WINDOW_SIZE) {
+            digest.update(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start)));
+        }
+    }
+
+    /**
+     * @return how far into the source the lines read so far reach, in bytes. A source that is not mapped counts
+     *         characters instead, with one for each line break.
+     */
+    public long bytesRead() {
+        return reader != null ? charsRead : windowStart + position;
+    }
+
+    /**
+     * This method is responsible for returning the next line.
+     * @return the line without its line break, or null once every line has been read.
+     */
+    public CharSequence nextLine() throws IOException {
+        if (reader != null) {
+            String line = reader.readLine();
+            if (line != null) {
+                charsRead += line.length() + 1;
+            }
+            return line;
+        }
+
+        while (true) {
+            int limit = window.limit();
+            StructuralScan.scanLine(window, position, limit, structure);
+            int end = structure[StructuralScan.END];
+
+            if (end < limit) {
+                CharSequence line = line(window, position, structure);
+                position = end + 1;
+                if (window.get(end) == '\r') {
+                    if (position < limit) {
+                        if (window.get(position) == '\n') {
+                            position++;
+                        }
+                    } else if (windowStart + limit < size) {
+                        map(windowStart + position);
+                        if (window.get(0) == '\n') {
+                            position++;
+                        }
+                    }
+                }
+                return line;
+            }
+
+            if (windowStart + limit >= size) {
+                if (position == limit) {
+                    return null;
+                }
+                CharSequence line = line(window, position, structure);
+                position = limit;
+                return line;
+            }
+
+            if (position == 0) {
+                throw new IOException("A line is longer than " + WINDOW_SIZE + " bytes.");
+            }
+            map(windowStart + position);
+        }
+    }
+
+    /**
+     * This method is responsible for reading every line left in a mapped file that fits in one window. The rest
+     * of the file is split between lines into a part for each thread, and the parts are scanned on the pool at
+     * the same time. Any other source is read a line at a time.
+     * @param pool where the parts are scanned.
+     * @param parts the most parts to split the file into. None is smaller than a megabyte.
+     * @return the lines in order.
+     */
+    public List<CharSequence> readLines(ExecutorService pool, int parts) throws IOException {
+        List<CharSequence> lines = new ArrayList<>();
+        if (reader == null) {
+            parts = Math.min(parts, (window.limit() - position) / MIN_BYTES_PER_PART);
+        }
+        if (reader != null || windowStart + window.limit() < size || parts < 2) {
+            CharSequence line;
+            while ((line = nextLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+
+        ByteBuffer window = this.window;
+        int[] points = StructuralScan.splitPoints(window, position, window.limit(), parts);
+        List<Callable<List<CharSequence>>> scans = new ArrayList<>();
+        for (int i = 0; i + 1 < points.length; i++) {
+            int from = points[i];
+            int to = points[i + 1];
+            scans.add(() -> scanLines(window, from, to));
+        }
+
+        try {
+            for (Future<List<CharSequence>> part: pool.invokeAll(scans)) {
+                lines.addAll(part.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reading was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+        position = window.limit();
+        return lines;
+    }
+
+    /**
+     * @return the lines from a line start up to to, which is a line start or the end of the file.
+     */
+    private static List<CharSequence> scanLines(ByteBuffer window, int from, int to) {
+        List<CharSequence> lines = new ArrayList<>();
+        int[] structure = new int[4];
+        int position = from;
+
+        while (position < to) {
+            StructuralScan.scanLine(window, position, to, structure);
+            int end = structure[StructuralScan.END];
+            lines.add(line(window, position, structure));
+            position = end + 1;
+            if (end < to && window.get(end) == '\r' && position < to && window.get(position) == '\n') {
+                position++;
+            }
+        }
+        return lines;
+    }
+
+    private static CharSequence line(ByteBuffer window, int start, int[] structure) {
+        int end = structure[StructuralScan.END];
+        if (structure[StructuralScan.ASCII] == 1) {
+            return new ByteLine(window, start, end - start, structure[StructuralScan.COLON],
+                    structure[StructuralScan.SEMICOLON]);
+        }
+
+        byte[] bytes = new byte[end - start];
+        window.get(start, bytes);
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        } else if (!standardInput) {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package pal;
+
+import java.util.Arrays;
+
+/**
+ * This class is responsible for splitting a line of PAL into its parts in a single scan over its characters.
+ * Nothing is copied: the label, opcode, operands and comment are kept as offsets into the line, so the
+ * checker only builds a String when it needs one for a message. A lexer is reused for every line of a file.
+ *
+ * A line is laid out as
+ *     [label:] opcode [operand[, operand ...]] [; comment ELO]
+ * with any amount of whitespace around each part. Operands are separated by commas, whitespace or both.
+ * A line read from a mapped file already knows where its first colon and semicolon are, so only the parts
+ * between them are scanned.
+ */
+public class PalLexer {
+
+    private CharSequence line;
+    private int length;
+    private boolean blank;
+    private int commentStart;
+    private boolean endsWithElo;
+    private int labelStart;
+    private int labelEnd;
+    private int opCodeStart;
+    private int opCodeEnd;
+    private int operandCount;
+    private int[] operandStart = new int[4];
+    private int[] operandEnd = new int[4];
+
+    /**
+     * This method is responsible for scanning a line and recording where each of its parts starts and ends.
+     * @param line the raw source line.
+     */
+    public void lex(CharSequence line) {
+        this.line = line;
+        length = line.length();
+        commentStart = -1;
+        labelStart = labelEnd = -1;
+        opCodeStart = opCodeEnd = -1;
+        operandCount = 0;
+
+        int colon = -1;
+        if (line instanceof PalInput.ByteLine && ((PalInput.ByteLine) line).colon != PalInput.ByteLine.UNKNOWN) {
+            PalInput.ByteLine scanned = (PalInput.ByteLine) line;
+            commentStart = scanned.semicolon;
+            colon = commentStart < 0 || scanned.colon < commentStart ? scanned.colon : -1;
+        } else {
+            for (int i = 0; i < length; i++) {
+                char c = line.charAt(i);
+                if (c == ';') {
+                    commentStart = i;
+                    break;
+                } else if (c == ':' && colon < 0) {
+                    colon = i;
+                }
+            }
+        }
+
+        endsWithElo = length >= 3 && line.charAt(length - 3) == 'E' && line.charAt(length - 2) == 'L'
+                && line.charAt(length - 1) == 'O';
+
+        int codeEnd = codeEnd();
+        int position = 0;
+
+        if (colon >= 0) {
+            labelStart = skipWhitespace(0, colon);
+            labelEnd = colon;
+            while (labelEnd > labelStart && isWhitespace(line.charAt(labelEnd - 1))) {
+                labelEnd--;
+            }
+            position = colon + 1;
+        }
+
+        position = skipWhitespace(position, codeEnd);
+        if (position < codeEnd) {
+            opCodeStart = position;
+            opCodeEnd = skipWord(position, codeEnd);
+            position = opCodeEnd;
+        }
+
+        while (true) {
+            while (position < codeEnd && isSeparator(line.charAt(position))) {
+                position++;
+            }
+            if (position >= codeEnd) {
+                break;
+            }
+
+            if (operandCount == operandStart.length) {
+                operandStart = Arrays.copyOf(operandStart, operandCount * 2);
+                operandEnd = Arrays.copyOf(operandEnd, operandCount * 2);
+            }
+            operandStart[operandCount] = position;
+            position = skipWord(position, codeEnd);
+            operandEnd[operandCount++] = position;
+        }
+
+        /*
+         * A line with no comment, label or opcode has nothing but whitespace
+         */
+        blank = commentStart < 0 && colon < 0 && opCodeStart < 0;
+    }
+
+    private int skipWhitespace(int position, int end) {
+        while (position < end && isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private int skipWord(int position, int end) {
+        while (position < end && !isSeparator(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * The same characters as \s in a regular expression.
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || isWhitespace(c);
+    }
+
+    public CharSequence line() {
+        return line;
+    }
+
+    /**
+     * @return true if the line is empty or only whitespace.
+     */
+    public boolean isBlank() {
+        return blank;
+    }
+
+    public boolean hasComment() {
+        return commentStart >= 0;
+    }
+
+    public boolean endsWithElo() {
+        return endsWithElo;
+    }
+
+    /**
+     * @return the offset just past the code, which is where the comment starts if there is one.
+     */
+    public int codeEnd() {
+        return commentStart >= 0 ? commentStart : length;
+    }
+
+    /**
+     * @return true if there is nothing but whitespace before the comment.
+     */
+    public boolean isCodeBlank() {
+        return skipWhitespace(0, codeEnd()) == codeEnd();
+    }
+
+    public boolean hasLabel() {
+        return labelStart >= 0;
+    }
+
+    public int labelStart() {
+        return labelStart;
+    }
+
+    public int labelEnd() {
+        return labelEnd;
+    }
+
+    public boolean hasOpCode() {
+        return opCodeStart >= 0;
+    }
+
+    public int opCodeStart() {
+        return opCodeStart;
+    }
+
+    public int opCodeEnd() {
+        return opCodeEnd;
+    }
+
+    public boolean opCodeIs(String name) {
+        return hasOpCode() && regionEquals(opCodeStart, opCodeEnd, name);
+    }
+
+    public int operandCount() {
+        return operandCount;
+    }
+
+    public int operandStart(int operand) {
+        return operandStart[operand];
+    }
+
+    public int operandEnd(int operand) {
+        return operandEnd[operand];
+    }
+
+    public int operandLength(int operand) {
+        return operandEnd[operand] - operandStart[operand];
+    }
+
+    public boolean operandHasDigit(int operand) {
+        return hasDigit(operandStart[operand], operandEnd[operand]);
+    }
+
+    public String operand(int operand) {
+        return line.subSequence(operandStart[operand], operandEnd[operand]).toString();
+    }
+
+    public String label() {
+        return line.subSequence(labelStart, labelEnd).toString();
+    }
+
+    public String opCode() {
+        return hasOpCode() ? line.subSequence(opCodeStart, opCodeEnd).toString() : null;
+    }
+
+    /**
+     * @return true if any character between start and end is 0-9, the same as matching .*\d+.* on it.
+     */
+    public boolean hasDigit(int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean regionEquals(int start, int end, String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) != name.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
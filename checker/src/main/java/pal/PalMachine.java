@@ -0,0 +1,236 @@
+package pal;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * This class is responsible for running a PalProgram. The registers, memory locations and numbers of the
+ * program are the cells of one int array, and the code is run one instruction at a time in a single loop until
+ * END, a division by zero or the end of the instruction budget. A run that spends its budget can be carried on
+ * with another call to run.
+ *
+ * Words are 32 bits and unsigned: SUB and DEC wrap below zero, and DIV and BGT treat every word as positive.
+ * Counting how many times each opcode runs is optional, as it costs a store for every instruction.
+ */
+public class PalMachine {
+
+    /*
+     * Why a run stopped
+     */
+    public static final int HALTED = 0;
+    public static final int OUT_OF_BUDGET = 1;
+    public static final int DIVIDED_BY_ZERO = 2;
+
+    private static final int HALT = PalProgram.HALT;
+
+    private final PalProgram program;
+    private final int[] cells;
+    private final long[] opCodeCounts;  // null unless counting
+    private int pc;
+    private long executed = 0;
+    private int status = OUT_OF_BUDGET;
+
+    /**
+     * @param program the program to run.
+     * @param countOpCodes true to count how many times each opcode runs.
+     */
+    public PalMachine(PalProgram program, boolean countOpCodes) {
+        this.program = program;
+        this.cells = program.initialCells.clone();
+        this.opCodeCounts = countOpCodes ? new long[HALT + 1] : null;
+        this.pc = program.entry;
+    }
+
+    /**
+     * This method is responsible for putting the machine back at the start of its program with every register
+     * and memory location 0 and nothing counted.
+     */
+    public void reset() {
+        System.arraycopy(program.initialCells, 0, cells, 0, cells.length);
+        if (opCodeCounts != null) {
+            Arrays.fill(opCodeCounts, 0);
+        }
+        pc = program.entry;
+        executed = 0;
+        status = OUT_OF_BUDGET;
+    }
+
+    /**
+     * This method is responsible for running the program from where it stopped. A machine that halted stays
+     * halted until it is reset.
+     * @param budget the most instructions to run, END included.
+     * @return HALTED, OUT_OF_BUDGET or DIVIDED_BY_ZERO.
+     */
+    public int run(long budget) {
+        if (status != OUT_OF_BUDGET) {
+            return status;
+        }
+
+        final int[] code = program.code;
+        final int[] cells = this.cells;
+        final long[] counts = opCodeCounts;
+        int pc = this.pc;
+        long left = budget;
+        int stopped = OUT_OF_BUDGET;
+
+        run:
+        while (left > 0) {
+            int op = code[pc];
+            if (counts != null) {
+                counts[op]++;
+            }
+            left--;
+
+            switch (op) {
+                case OpCodeRule.COPY:
+                case OpCodeRule.MOVE:
+                    cells[code[pc + 2]] = cells[code[pc + 1]];
+                    pc += PalProgram.WIDTH;
+                    break;
+                case OpCodeRule.ADD:
+                    cells[code[pc + 3]] = cells[code[pc + 1]] + cells[code[pc + 2]];
+                    pc += PalProgram.WIDTH;
+                    break;
+                case OpCodeRule.INC:
+                    cells[code[pc + 1]]++;
+                    pc += PalProgram.WIDTH;
+                    break;
+                case OpCodeRule.SUB:
+                    cells[code[pc + 3]] = cells[code[pc + 1]] - cells[code[pc + 2]];
+                    pc += PalProgram.WIDTH;
+                    break;
+                case OpCodeRule.DEC:
+                    cells[code[pc + 1]]--;
+                    pc += PalProgram.WIDTH;
+                    break;
+                case OpCodeRule.MUL:
+                    cells[code[pc + 3]] = cells[code[pc + 1]] * cells[code[pc + 2]];
+                    pc += PalProgram.WIDTH;
+                    break;
+                case OpCodeRule.DIV: {
+                    int divisor = cells[code[pc + 2]];
+                    if (divisor == 0) {
+                        stopped = DIVIDED_BY_ZERO;
+                        break run;
+                    }
+                    cells[code[pc + 3]] = Integer.divideUnsigned(cells[code[pc + 1]], divisor);
+                    pc += PalProgram.WIDTH;
+                    break;
+                }
+                case OpCodeRule.BEQ:
+                    pc = cells[code[pc + 1]] == cells[code[pc + 2]] ? code[pc + 3] : pc + PalProgram.WIDTH;
+                    break;
+                case OpCodeRule.BGT:
+                    pc = Integer.compareUnsigned(cells[code[pc + 1]], cells[code[pc + 2]]) > 0 ? code[pc + 3]
+                            : pc + PalProgram.WIDTH;
+                    break;
+                case OpCodeRule.BR:
+                    pc = code[pc + 1];
+                    break;
+                default:  // HALT, the only other opcode a program holds
+                    stopped = HALTED;
+                    break run;
+            }
+        }
+
+        this.pc = pc;
+        executed += budget - left;
+        status = stopped;
+        return stopped;
+    }
+
+    /**
+     * @return why the last run stopped.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the instructions run since the machine was made or reset, END included.
+     */
+    public long getExecuted() {
+        return executed;
+    }
+
+    /**
+     * @param register 0 for R0 up to 7 for R7.
+     * @return the value of the register.
+     */
+    public int getRegister(int register) {
+        return cells[register];
+    }
+
+    /**
+     * @param name a memory location the program defines.
+     * @return its value.
+     * @throws IllegalArgumentException if the program does not define it.
+     */
+    public int getMemory(String name) {
+        for (int i = 0; i < program.memoryNames.length; i++) {
+            if (program.memoryNames[i].equals(name)) {
+                return cells[PalProgram.REGISTERS + i];
+            }
+        }
+        throw new IllegalArgumentException(name + " is not a memory location.");
+    }
+
+    /**
+     * @param opCode the name of an opcode, END included.
+     * @return how many times it ran, or 0 if the machine is not counting.
+     */
+    public long getOpCodeCount(String opCode) {
+        for (int op = 0; opCodeCounts != null && op < opCodeCounts.length; op++) {
+            if (PalProgram.opCodeName(op).equals(opCode)) {
+                return opCodeCounts[op];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the line number of the instruction the machine stopped at.
+     */
+    public int getLine() {
+        return program.sourceLines[pc / PalProgram.WIDTH];
+    }
+
+    /**
+     * This method is responsible for printing why the machine stopped, its registers and memory locations in
+     * octal and, if it is counting, how many times each opcode ran.
+     * @param name the file the program came from.
+     */
+    public void print(String name, PrintStream out) {
+        out.println("\nRun of " + name + "\n" + "--------------------------------------------------");
+        switch (status) {
+            case HALTED:
+                out.println("Halted at line " + getLine() + " after " + executed + " instructions.");
+                break;
+            case DIVIDED_BY_ZERO:
+                out.println("Stopped by a division by zero at line " + getLine() + " after " + executed
+                        + " instructions.");
+                break;
+            default:
+                out.println("Stopped at line " + getLine() + " after the budget of " + executed
+                        + " instructions.");
+        }
+
+        StringBuilder registers = new StringBuilder();
+        for (int i = 0; i < PalProgram.REGISTERS; i++) {
+            registers.append(i == 0 ? "" : "  ").append('R').append(i).append(" = ")
+                    .append(Integer.toOctalString(cells[i]));
+        }
+        out.println(registers);
+        for (int i = 0; i < program.memoryNames.length; i++) {
+            out.println(program.memoryNames[i] + " = " + Integer.toOctalString(cells[PalProgram.REGISTERS + i]));
+        }
+
+        if (opCodeCounts != null) {
+            out.println("");
+            for (int op = 0; op < opCodeCounts.length; op++) {
+                if (opCodeCounts[op] > 0)
+                    out.println("    " + PalProgram.opCodeName(op) + ": " + opCodeCounts[op] + ".");
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package pal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A PAL program lowered for PalMachine. Only a program the checker found no errors in is lowered, so nothing
+ * here checks the lines again; it reuses the lexer, the symbol table and the opcode rules to read them.
+ *
+ * Each instruction takes WIDTH ints of code: the opcode followed by up to three operands. The registers, the
+ * memory locations and the numbers the program uses all become cells of one int array, R0 to R7 first, and an
+ * operand is the index of its cell, so an instruction never asks what kind of operand it has. A branch target
+ * is the offset of the instruction it goes to. DEF and SRT leave no instruction behind and END becomes HALT.
+ *
+ * Numbers are unsigned and written in octal, as the PAL spec has them. Every memory location gets a cell of its
+ * own; the address given to DEF is not used.
+ */
+public class PalProgram {
+
+    /**
+     * The ints each instruction takes.
+     */
+    static final int WIDTH = 4;
+
+    /**
+     * The opcode of END. Every other opcode is the symbol table id of its name, the position of its rule.
+     */
+    static final int HALT = OpCodeRule.RULES.length;
+
+    static final int REGISTERS = 8;
+
+    final int[] code;
+    final int entry;           // the offset of the first instruction after SRT
+    final int[] sourceLines;   // the line number of each instruction
+    final int[] initialCells;  // every register and memory location 0, then the numbers
+    final String[] memoryNames;
+
+    private PalProgram(int[] code, int entry, int[] sourceLines, int[] initialCells, String[] memoryNames) {
+        this.code = code;
+        this.entry = entry;
+        this.sourceLines = sourceLines;
+        this.initialCells = initialCells;
+        this.memoryNames = memoryNames;
+    }
+
+    /**
+     * This method is responsible for lowering the lines of a program that was checked without errors. The
+     * lines after END are only read for the labels they define, which a branch treats as END.
+     * @param lines the source lines.
+     * @return the program.
+     * @throws IllegalArgumentException if a number is not octal, which the checker does not look at.
+     */
+    static PalProgram compile(List<? extends CharSequence> lines) {
+        PalLexer lexer = new PalLexer();
+        SymbolTable symbols = new SymbolTable();
+        HashMap<Integer, Integer> numbers = new HashMap<>();
+        int[] memory = new int[64];  // the cell of each memory location by symbol id, 0 for other names
+        int memoryCount = 0;
+        int[] labels = new int[64];  // the offset + 1 of each label by symbol id, 0 for other names
+        int[] code = new int[64];
+        int[] sourceLines = new int[16];
+        int size = 0;
+        int entry = 0;
+
+        /*
+         * Labels are resolved once they are all known, so each branch records its label id in place of the
+         * offset until then
+         */
+        int[] branches = new int[16];
+        int branchCount = 0;
+
+        int line = 0;
+        boolean ended = false;
+        for (; line < lines.size() && !ended; line++) {
+            lexer.lex(lines.get(line));
+            if (lexer.hasLabel()) {
+                int label = symbols.intern(lexer.line(), lexer.labelStart(), lexer.labelEnd());
+                labels = defineOnce(labels, label, size);
+            }
+            if (!lexer.hasOpCode()) {
+                continue;
+            }
+
+            if (lexer.opCodeIs("SRT")) {
+                entry = size;
+                continue;
+            }
+            if (size + WIDTH > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            if (size / WIDTH == sourceLines.length) {
+                sourceLines = Arrays.copyOf(sourceLines, sourceLines.length * 2);
+            }
+            sourceLines[size / WIDTH] = line + 1;
+
+            if (lexer.opCodeIs("END")) {
+                code[size] = HALT;
+                size += WIDTH;
+                ended = true;
+                continue;
+            }
+
+            int opCodeId = symbols.find(lexer.line(), lexer.opCodeStart(), lexer.opCodeEnd());
+            OpCodeRule rule = OpCodeRule.forId(opCodeId);
+            if (rule.definesMemoryLocation) {
+                int id = symbols.intern(lexer.line(), lexer.operandStart(0), lexer.operandEnd(0));
+                symbols.defineMemoryLocation(lexer.line(), lexer.operandStart(0), lexer.operandEnd(0));
+                if (id >= memory.length) {
+                    memory = Arrays.copyOf(memory, Math.max(memory.length * 2, id + 1));
+                }
+                if (memory[id] == 0) {
+                    memory[id] = REGISTERS + memoryCount++;
+                }
+                continue;
+            }
+
+            code[size] = opCodeId;
+            for (int i = 0; i < rule.arity; i++) {
+                int start = lexer.operandStart(i);
+                int end = lexer.operandEnd(i);
+                int id = symbols.find(lexer.line(), start, end);
+
+                if (i == rule.labelSlot) {
+                    if (branchCount == branches.length) {
+                        branches = Arrays.copyOf(branches, branchCount * 2);
+                    }
+                    branches[branchCount++] = size + 1 + i;
+                    code[size + 1 + i] = symbols.intern(lexer.line(), start, end);
+                } else if (symbols.registerNumber(id) >= 0) {
+                    code[size + 1 + i] = symbols.registerNumber(id);
+                } else if (symbols.isMemoryLocation(id)) {
+                    code[size + 1 + i] = memory[id];
+                } else {
+                    code[size + 1 + i] = -1 - numbers.computeIfAbsent(parseOctal(lexer.operand(i), line + 1),
+                            value -> numbers.size());
+                }
+            }
+            size += WIDTH;
+        }
+
+        /*
+         * A program without END stops after its last instruction, and labels past the end go there too
+         */
+        if (!ended) {
+            if (size + WIDTH > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            if (size / WIDTH == sourceLines.length) {
+                sourceLines = Arrays.copyOf(sourceLines, sourceLines.length * 2);
+            }
+            sourceLines[size / WIDTH] = line;
+            code[size] = HALT;
+            size += WIDTH;
+        }
+        for (; line < lines.size(); line++) {
+            lexer.lex(lines.get(line));
+            if (lexer.hasLabel()) {
+                labels = defineOnce(labels, symbols.intern(lexer.line(), lexer.labelStart(), lexer.labelEnd()),
+                        size - WIDTH);
+            }
+        }
+
+        int numberBase = REGISTERS + memoryCount;
+        for (int i = 0; i < branchCount; i++) {
+            int label = code[branches[i]];
+            code[branches[i]] = label < labels.length && labels[label] > 0 ? labels[label] - 1 : size - WIDTH;
+        }
+        for (int i = 0; i < size; i += WIDTH) {
+            OpCodeRule rule = code[i] == HALT ? null : OpCodeRule.forId(code[i]);
+            for (int j = 0; rule != null && j < rule.arity; j++) {
+                if (j != rule.labelSlot && code[i + 1 + j] < 0) {
+                    code[i + 1 + j] = numberBase - 1 - code[i + 1 + j];
+                }
+            }
+        }
+
+        int[] cells = new int[numberBase + numbers.size()];
+        numbers.forEach((value, index) -> cells[numberBase + index] = value);
+
+        String[] memoryNames = new String[memoryCount];
+        for (int id = 0; id < memory.length; id++) {
+            if (memory[id] != 0) {
+                memoryNames[memory[id] - REGISTERS] = symbols.name(id);
+            }
+        }
+
+        return new PalProgram(Arrays.copyOf(code, size), entry, Arrays.copyOf(sourceLines, size / WIDTH), cells,
+                memoryNames);
+    }
+
+    /**
+     * A label defined more than once goes to its first definition.
+     * @return the table of label offsets, grown if needed.
+     */
+    private static int[] defineOnce(int[] labels, int label, int offset) {
+        if (label >= labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(labels.length * 2, label + 1));
+        }
+        if (labels[label] == 0) {
+            labels[label] = offset + 1;
+        }
+        return labels;
+    }
+
+    private static int parseOctal(String number, int line) {
+        try {
+            return Integer.parseUnsignedInt(number, 8);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Line " + line + ": " + number + " is not an octal number.");
+        }
+    }
+
+    /**
+     * @return the number of instructions, END included.
+     */
+    public int size() {
+        return code.length / WIDTH;
+    }
+
+    /**
+     * @return the memory locations in the order they were defined.
+     */
+    public List<String> getMemoryLocations() {
+        return List.of(memoryNames);
+    }
+
+    /**
+     * @param opCode an opcode of the code, HALT for END.
+     * @return its name.
+     */
+    static String opCodeName(int opCode) {
+        return opCode == HALT ? "END" : OpCodeRule.forId(opCode).name;
+    }
+}
@@ -0,0 +1,64 @@
+package pal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * This interface is responsible for the layout of a report. A report is written in three parts: the header,
+ * one entry for every reported line in order, then the summary. Each part is written as soon as it is known, so
+ * a format must not need to see the whole report before writing any of it.
+ */
+public interface ReportFormat {
+
+    /*
+     * The counts handed to summary, in the order they appear in the .log summary.
+     */
+    int TOTAL_ERRORS = 0;
+    int LABEL_WARNINGS = 8;
+    String[] COUNT_NAMES = {null, "Ill Formed Label", "Invalid Opcode", "Too Few Operands", "Too Many Operands",
+            "Ill Formed Operands", "Wrong Operand Type", "Label Problem", null};
+
+    /*
+     * Where a report entry is kept as one String, it is the source line followed by this and the error message
+     * if the line has an error.
+     */
+    String MESSAGE_SEPARATOR = "\n   **";
+
+    /**
+     * @return the extension of the report file, starting with the dot.
+     */
+    String extension();
+
+    void header(Writer output, String inputFileName) throws IOException;
+
+    /**
+     * @param entry the position of the entry in the report, starting at 1.
+     * @param lineNumber the line of the source file the entry shows, starting at 1.
+     * @param source the source line.
+     * @param message its error message, or null if it has none.
+     */
+    void line(Writer output, int entry, int lineNumber, CharSequence source, String message) throws IOException;
+
+    /**
+     * @param counts the total errors, the errors of each category and the warnings.
+     * @param warnings the text of each warning.
+     */
+    void summary(Writer output, int[] counts, List<String> warnings) throws IOException;
+
+    /**
+     * This method is responsible for finding a format by the name given on the command line.
+     * @param name log or json.
+     * @throws IllegalArgumentException if there is no such format.
+     */
+    static ReportFormat forName(String name) {
+        switch (name) {
+            case "log":
+                return new LogFormat();
+            case "json":
+                return new JsonLinesFormat();
+            default:
+                throw new IllegalArgumentException("Unknown report format " + name + ". Use log or json.");
+        }
+    }
+}
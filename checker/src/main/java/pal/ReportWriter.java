@@ -0,0 +1,186 @@
+package pal;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class is responsible for writing a report on its own thread while the file is still being checked. The
+ * checker hands over each part of the report as soon as it is known and carries on; the parts wait in a bounded
+ * queue until the writer thread formats them into a buffered file. When the writer falls behind the checker
+ * waits for room in the queue, so only a fixed number of lines are ever held no matter how long the report is.
+ *
+ * A failure to write is kept until the report is closed, and every part handed over after it is dropped.
+ * The time from opening the report until it is closed is a WriteReport CheckEvent.
+ */
+public class ReportWriter implements Closeable {
+
+    private static final int QUEUE_CAPACITY = 8192;
+
+    /**
+     * A part of the report waiting to be written.
+     */
+    private interface Part {
+        void write(Writer output) throws IOException;
+    }
+
+    private static final Part END = output -> { };
+
+    private final String fileName;
+    private final ReportFormat format;
+    private final Writer output;
+    private final boolean ownsOutput;
+    private final BlockingQueue<Part> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private volatile Exception failure = null;
+    private int entries = 0;
+    private final CheckEvent event = new CheckEvent.WriteReport().start();
+    private String inputFileName = null;
+    private int diagnostics = 0;
+
+    /**
+     * Creates the report file and starts its writer thread.
+     * @param fileName the report to write, replaced if it exists.
+     * @param format the layout of the report.
+     * @throws FileNotFoundException if the report cannot be created.
+     */
+    public ReportWriter(String fileName, ReportFormat format) throws FileNotFoundException {
+        this.fileName = fileName;
+        this.format = format;
+
+        try {
+            this.output = Files.newBufferedWriter(Paths.get(fileName), Charset.defaultCharset());
+        } catch (IOException | InvalidPathException ex) {
+            throw new FileNotFoundException("Error: File " + fileName + " was not found.");
+        }
+        this.ownsOutput = true;
+
+        this.writer = new Thread(this::drain, "report writer " + fileName);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Starts a writer thread for a report that goes to a writer of the caller's rather than a file.
+     * @param output where the report goes. It is flushed once the report is closed but left open.
+     * @param format the layout of the report.
+     */
+    public ReportWriter(Writer output, ReportFormat format) {
+        this.fileName = "";
+        this.format = format;
+        this.output = output;
+        this.ownsOutput = false;
+
+        this.writer = new Thread(this::drain, "report writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void header(String inputFileName) {
+        this.inputFileName = inputFileName;
+        put(output -> format.header(output, inputFileName));
+    }
+
+    /**
+     * @param lineNumber the line of the source file, starting at 1.
+     * @param source the next reported line. Entries are numbered in the order they are handed over.
+     * @param message its error message, or null if it has none.
+     */
+    public void line(int lineNumber, CharSequence source, String message) {
+        int entry = ++entries;
+        put(output -> format.line(output, entry, lineNumber, source, message));
+    }
+
+    /**
+     * @param counts the total errors, the errors of each category and the warnings.
+     * @param warnings the text of each warning.
+     */
+    public void summary(int[] counts, List<String> warnings) {
+        diagnostics = counts[ReportFormat.TOTAL_ERRORS] + counts[ReportFormat.LABEL_WARNINGS];
+        put(output -> format.summary(output, counts, warnings));
+    }
+
+    /**
+     * This method is responsible for waiting until everything handed over has been written and the file is
+     * closed.
+     * @throws IOException if any part of the report could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        put(END);
+
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        event.finish(inputFileName, entries, 0, diagnostics);
+
+        if (failure != null) {
+            throw new IOException("\nERROR: The report " + (ownsOutput ? fileName + " " : "") + "could not be written.",
+                    failure);
+        }
+    }
+
+    /*
+     * The writer thread always drains the queue, so waiting for room always ends. An interrupt is kept for the
+     * caller rather than dropping part of the report.
+     */
+    private void put(Part part) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(part);
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            Part part;
+            while ((part = queue.take()) != END) {
+                if (failure == null) {
+                    try {
+                        part.write(output);
+                    } catch (IOException | RuntimeException ex) {
+                        failure = ex;
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            failure = ex;
+        } finally {
+            try {
+                if (ownsOutput) {
+                    output.close();
+                } else {
+                    output.flush();
+                }
+            } catch (IOException ex) {
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+        }
+    }
+}
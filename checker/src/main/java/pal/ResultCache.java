@@ -0,0 +1,296 @@
+package pal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class is responsible for keeping the results of checked files on disk so a file that has not changed
+ * is never checked twice. Entries are named by a SHA-256 hash of the file content and the rule set version, and
+ * hold the report lines with their line numbers, warnings and counts. Reading an entry marks it as recently
+ * used, and once the cache grows past its size limit the least recently used entries are deleted.
+ *
+ * Several processes can share a cache directory. Entries are written to a temporary file and moved into place,
+ * so a reader sees either a whole entry or none, and a missing or damaged entry is simply treated as a miss.
+ */
+public class ResultCache {
+
+    private static final int MAGIC = 0x50414C43;  // "PALC"
+    private static final int VERSION = 2;          // entries of any other layout are a miss
+    private static final String SUFFIX = ".result";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong size = new AtomicLong(-1);
+    private PrintStream err = System.err;
+
+    /**
+     * The stored result of a check.
+     */
+    public static class Entry {
+        public final int[] counts;
+        public final int[] lines;  // the line number of each of the errors
+        public final List<String> errors;
+        public final List<String> warnings;
+
+        public Entry(int[] counts, int[] lines, List<String> errors, List<String> warnings) {
+            this.counts = counts;
+            this.lines = lines;
+            this.errors = errors;
+            this.warnings = warnings;
+        }
+    }
+
+    private static class CachedFile {
+        final Path path;
+        final FileTime used;
+        final long bytes;
+
+        CachedFile(Path path, FileTime used, long bytes) {
+            this.path = path;
+            this.used = used;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * @param directory where the entries are kept, created if needed.
+     * @param maxBytes how large the entries may grow in total before the least recently used are deleted.
+     */
+    public ResultCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Sets where a warning is printed when a result cannot be cached, System.err by default.
+     */
+    public void setOutput(PrintStream err) {
+        this.err = err;
+    }
+
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".palcache");
+    }
+
+    /**
+     * This method is responsible for naming the entry for some file content.
+     * @param content the mapped PAL source. The lines still to be read are not affected.
+     * @return the hex SHA-256 hash of the rule set version and the content.
+     */
+    public static String key(PalInput content) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(StyleChecker.RULES_VERSION.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            content.updateDigest(digest);
+
+            StringBuilder key = new StringBuilder();
+            for (byte b: digest.digest()) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * This method is responsible for reading the entry for a key. Every count and length in the entry is checked
+     * against the bytes left in it, so a damaged entry is deleted and treated as a miss like a missing one.
+     * @return the entry, or null if there is none or it cannot be read.
+     */
+    public Entry get(String key) {
+        Path file = directory.resolve(key + SUFFIX);
+
+        try {
+            if (Files.size(file) > maxBytes) {
+                throw new IOException("larger than the cache");
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a cache entry");
+            }
+
+            int[] counts = readInts(in);
+            int[] lines = readInts(in);
+            List<String> errors = readStrings(in);
+            if (errors.size() != lines.length) {
+                throw new IOException("damaged entry");
+            }
+            List<String> warnings = readStrings(in);
+            if (in.available() != 0) {
+                throw new IOException("bytes after the entry");
+            }
+
+            try {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException ex) {
+                // evicted by another process while it was read, the result is still good
+            }
+            return new Entry(counts, lines, errors, warnings);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException | RuntimeException ex) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // another process has it, it will be replaced or evicted later
+            }
+            return null;
+        }
+    }
+
+    /**
+     * This method is responsible for storing the result of a check. A result that cannot be stored is dropped,
+     * since the cache only ever saves time.
+     */
+    public void put(String key, Entry entry) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeInts(out, entry.counts);
+                writeInts(out, entry.lines);
+                writeStrings(out, entry.errors);
+                writeStrings(out, entry.warnings);
+            }
+
+            long bytes = Files.size(temp);
+            Path file = directory.resolve(key + SUFFIX);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            if (size.get() < 0) {
+                size.compareAndSet(-1, measure());
+            } else {
+                size.addAndGet(bytes);
+            }
+            if (size.get() > maxBytes) {
+                evict();
+            }
+        } catch (IOException ex) {
+            err.println("Warning: the result could not be cached. " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This method is responsible for deleting the least recently used entries until the cache is back under
+     * three quarters of its limit. Entries another process deletes first are skipped.
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(directory)) {
+            entries = files.filter(file -> file.toString().endsWith(SUFFIX)).collect(Collectors.toList());
+        }
+
+        List<CachedFile> byAge = new ArrayList<>();
+        long total = 0;
+        for (Path entry: entries) {
+            try {
+                byAge.add(new CachedFile(entry, Files.getLastModifiedTime(entry), Files.size(entry)));
+                total += byAge.get(byAge.size() - 1).bytes;
+            } catch (NoSuchFileException ex) {
+                // already evicted
+            }
+        }
+        byAge.sort(Comparator.comparing(entry -> entry.used));
+
+        for (CachedFile entry: byAge) {
+            if (total <= maxBytes * 3 / 4) {
+                break;
+            }
+            Files.deleteIfExists(entry.path);
+            total -= entry.bytes;
+        }
+        size.set(total);
+    }
+
+    private long measure() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            long total = 0;
+            for (Path file: (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(SUFFIX)) {
+                    try {
+                        total += Files.size(file);
+                    } catch (NoSuchFileException ex) {
+                        // already evicted
+                    }
+                }
+            }
+            return total;
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value: values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] values = new int[readCount(in, Integer.BYTES)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string: strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @param itemBytes the fewest bytes each of the items counted takes.
+     * @return the count read, once it is known to fit in the bytes left in the entry.
+     */
+    private static int readCount(DataInputStream in, int itemBytes) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available() / itemBytes) {
+            throw new IOException("damaged entry");
+        }
+        return count;
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = readCount(in, Integer.BYTES);
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[readCount(in, 1)];
+            in.readFully(bytes);
+            strings.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+}
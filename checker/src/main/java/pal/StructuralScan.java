@@ -0,0 +1,158 @@
+package pal;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class is responsible for finding the structure of PAL lines in the raw bytes of a mapped file, eight bytes
+ * at a time. Each long read from the buffer is tested for every structural character at once with the SWAR zero
+ * byte test, so a line is scanned once for its line break, its first colon, its first semicolon and any byte
+ * outside ASCII. PalLexer takes the colon and semicolon from the line instead of looking for them again, and
+ * PalInput uses the same test to find where a large file can be split between lines.
+ *
+ * The test is exact for the lowest matching byte of a word, which is the only one ever used. The buffer must be
+ * in little endian order, so the lowest byte of a word is the first in the file.
+ *
+ * Commas and the ELO at the end of a comment are not indexed. The lexer walks the code between the label and the
+ * comment anyway to skip the whitespace around each operand, and finds the commas as it goes, and ELO is only
+ * ever looked for in the last three characters of the line.
+ */
+final class StructuralScan {
+
+    /*
+     * The positions of the result of scanLine
+     */
+    static final int END = 0;        // the line break, or the limit if there is none
+    static final int COLON = 1;      // from the start of the line, -1 if there is none
+    static final int SEMICOLON = 2;  // from the start of the line, -1 if there is none
+    static final int ASCII = 3;      // 1 if every byte is ASCII
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long NEWLINES = ONES * '\n';
+    private static final long RETURNS = ONES * '\r';
+    private static final long COLONS = ONES * ':';
+    private static final long SEMICOLONS = ONES * ';';
+
+    private StructuralScan() {
+    }
+
+    /**
+     * @return the high bit of the first byte of the word equal to the byte repeated in pattern, and possibly of
+     *         bytes after it, or 0 if there is none.
+     */
+    private static long matches(long word, long pattern) {
+        long x = word ^ pattern;
+        return (x - ONES) & ~x & HIGH_BITS;
+    }
+
+    /**
+     * This method is responsible for scanning one line.
+     * @param buffer the bytes, in little endian order.
+     * @param from where the line starts.
+     * @param limit where the bytes that can be read end.
+     * @param result filled in at END, COLON, SEMICOLON and ASCII.
+     */
+    static void scanLine(ByteBuffer buffer, int from, int limit, int[] result) {
+        int colon = -1;
+        int semicolon = -1;
+        boolean ascii = true;
+        int i = from;
+
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = buffer.getLong(i);
+            long breaks = matches(word, NEWLINES) | matches(word, RETURNS);
+            long before = breaks == 0 ? -1L : Long.lowestOneBit(breaks) - 1;  // every byte before the break
+
+            /*
+             * Most words hold none of the other characters, so one test passes them by
+             */
+            long colons = matches(word, COLONS) & before;
+            long semicolons = matches(word, SEMICOLONS) & before;
+            long highBits = word & HIGH_BITS & before;
+            if ((colons | semicolons | highBits) != 0) {
+                if (colon < 0 && colons != 0) {
+                    colon = i - from + (Long.numberOfTrailingZeros(colons) >>> 3);
+                }
+                if (semicolon < 0 && semicolons != 0) {
+                    semicolon = i - from + (Long.numberOfTrailingZeros(semicolons) >>> 3);
+                }
+                ascii &= highBits == 0;
+            }
+
+            if (breaks != 0) {
+                finish(result, i + (Long.numberOfTrailingZeros(breaks) >>> 3), colon, semicolon, ascii);
+                return;
+            }
+        }
+
+        for (; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                break;
+            } else if (b == ':' && colon < 0) {
+                colon = i - from;
+            } else if (b == ';' && semicolon < 0) {
+                semicolon = i - from;
+            } else if (b < 0) {
+                ascii = false;
+            }
+        }
+        finish(result, i, colon, semicolon, ascii);
+    }
+
+    private static void finish(int[] result, int end, int colon, int semicolon, boolean ascii) {
+        result[END] = end;
+        result[COLON] = colon;
+        result[SEMICOLON] = semicolon;
+        result[ASCII] = ascii ? 1 : 0;
+    }
+
+    /**
+     * @return the offset just past the first line break at or after from, with \r\n taken as one, or limit if
+     *         there is none.
+     */
+    static int nextLineStart(ByteBuffer buffer, int from, int limit) {
+        int i = from;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = buffer.getLong(i);
+            long breaks = matches(word, NEWLINES) | matches(word, RETURNS);
+            if (breaks != 0) {
+                i += Long.numberOfTrailingZeros(breaks) >>> 3;
+                break;
+            }
+        }
+        while (i < limit && buffer.get(i) != '\n' && buffer.get(i) != '\r') {
+            i++;
+        }
+
+        if (i >= limit) {
+            return limit;
+        }
+        if (buffer.get(i) == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n') {
+            i++;
+        }
+        return i + 1;
+    }
+
+    /**
+     * This method is responsible for dividing bytes into parts of about the same size that each start at the
+     * beginning of a line.
+     * @param parts how many parts to make. Fewer are made if the lines are too long.
+     * @return the start of each part followed by limit.
+     */
+    static int[] splitPoints(ByteBuffer buffer, int from, int limit, int parts) {
+        int[] points = new int[parts + 1];
+        int count = 0;
+        points[count++] = from;
+        for (int i = 1; i < parts; i++) {
+            int nominal = (int) (from + (long) (limit - from) * i / parts);
+            int start = nextLineStart(buffer, Math.max(nominal, points[count - 1]), limit);
+            if (start > points[count - 1] && start < limit) {
+                points[count++] = start;
+            }
+        }
+        points[count++] = limit;
+        return Arrays.copyOf(points, count);
+    }
+}
@@ -0,0 +1,1500 @@
+package pal;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.zip.ZipException;
+
+public class StyleChecker {
+
+    private static final int LINE_SKIPPED = 0;
+    private static final int LINE_CHECKED = 1;
+    private static final int LINE_PENDING = 2;
+    private static final int LINE_END = 3;
+
+    /*
+     * Error categories, in the order they appear in the summary
+     */
+    static final int ILL_FORMED_LABEL = 0;
+    static final int INVALID_OPCODE = 1;
+    static final int TOO_FEW_OPERANDS = 2;
+    static final int TOO_MANY_OPERANDS = 3;
+    static final int ILL_FORMED_OPERANDS = 4;
+    static final int WRONG_OPERAND_TYPE = 5;
+    static final int LABEL_PROBLEM = 6;
+
+    /*
+     * Files shorter than this are checked on a single thread even when more are allowed.
+     */
+    private static final int MIN_LINES_PER_CHUNK = 16384;
+
+    /*
+     * In streaming mode, once more lines than this wait on a branch they are held in a LineSpill instead.
+     */
+    static final int MAX_HELD_LINES = 16384;
+
+    /*
+     * Change this whenever checkLine reports anything differently, so results cached by an older version of the
+     * rules are not reused.
+     */
+    static final String RULES_VERSION = "2";
+
+    /*
+     * The most instructions -run runs a program for, unless it is given another budget
+     */
+    static final long DEFAULT_RUN_BUDGET = 1_000_000_000L;
+
+    private final String inputFileName;
+    private final String reportBaseName;
+    private final Source source;  // null to open the input file
+    private final boolean streamMode;
+    private int threads = 1;
+    private ResultCache cache = null;
+    private ReportFormat format = new LogFormat();
+    private Path workingDirectory = null;
+    private ArrayList<String> reportedLines = null;  // every line written, kept only when the result is cached
+    private int[] reportedLineNumbers = null;         // and the line number of each
+    private int endLine = -1;  // first pass over a chunk only, the line of the END command
+    private int totalErrors = 0;
+    private int numIllFormedLabel = 0;
+    private int numOpCodeErrors = 0;
+    private int numTooFewOperands = 0;
+    private int numTooManyOperands = 0;
+    private int numIllFormedOperands = 0;
+    private int numWrongOperandType = 0;
+    private int numLabelProblems = 0;
+    private int numLabelWarnings = 0;
+    private int lastCategory = -1;  // the category of the last error counted
+    private int checkedLines = 0;
+    private final CheckMetrics.LineTimes lineTimes = new CheckMetrics.LineTimes();
+    private final ArrayList<CharSequence> data = new ArrayList<>();
+    private final DiagnosticStore diagnostics = new DiagnosticStore();
+    private int lineNumber = 0;  // of the line being checked, counted from the first line given to checkLine
+    private final ArrayList<String> warnings = new ArrayList<>();
+    private final SymbolTable symbols = new SymbolTable();
+    private final PalLexer lexer = new PalLexer();
+    private final FlowAnalysis flow = new FlowAnalysis();
+    private final int[] operandIds = new int[3];  // the symbol id of each operand classified on the current line
+
+    /*
+     * diagnostics holds the lines that have not been written to the report yet and flushedLines is the number of
+     * lines already written or spilled. In streaming mode pendingLabels holds the forward label references still
+     * waiting for their definition, in line order, and spill holds every line from spillStart on once too many
+     * lines wait on them.
+     */
+    private int flushedLines = 0;
+    private LineSpill spill = null;
+    private int spillStart = 0;
+    private final ArrayDeque<PendingLabel> pendingLabels = new ArrayDeque<>();
+    private final HashMap<String, ArrayList<PendingLabel>> pendingByLabel = new HashMap<>();
+
+    /**
+     * Opens a source that is not a file of its own, such as an entry of a zip bundle.
+     */
+    interface Source {
+        PalInput open() throws IOException;
+    }
+
+    /**
+     * A branch whose label operand has not been defined yet when its line is checked in streaming mode.
+     */
+    private static class PendingLabel {
+        final int lineIndex;
+        final int flowLine;
+        final int slot;
+        final String operand;
+        boolean resolved = false;
+        int code = DiagnosticStore.NONE;  // the error, once the file has ended without the label
+
+        PendingLabel(int lineIndex, int flowLine, int slot, String operand) {
+            this.lineIndex = lineIndex;
+            this.flowLine = flowLine;
+            this.slot = slot;
+            this.operand = operand;
+        }
+    }
+
+    /**
+     * This is the main method. If files, directories or glob patterns are given on the command line they are
+     * all checked by the BatchChecker. Otherwise this will get the input file name from the user and check it.
+     * A file ending in .pal.gz is read as it is decompressed, and a .zip or .jar bundle has each of its .pal
+     * entries checked without being extracted.
+     * @param args generic catch all for variables taken upon program launch. Passing -stream checks each file
+     *             in a single pass without holding it in memory, and -parallel splits each large file across
+     *             every core (or -parallel=N across N threads) to be read and checked. Passing -watch keeps
+     *             running and checks the files again whenever they are saved. Passing -cache (or -cache=DIR, with
+     *             -cache-size=MB) reuses the results of files that have been checked before. Passing
+     *             -format=json writes a JSON Lines report in place of the .log. Passing -server (or -server=SOCKET,
+     *             or -server=PORT for a loopback TCP port that any local user can connect to) starts a resident
+     *             server that CheckClient hands its checks to. Passing -metrics prints the
+     *             time spent in each phase and the errors of each category once the files are checked.
+     *             Passing -run (or -run=BUDGET, the most instructions to run) runs each file without errors
+     *             once it is checked and prints its registers and memory, and -profile adds how many times
+     *             each opcode ran.
+     */
+    public static void main(String[] args) {
+        for (String arg: args) {
+            if ("-server".equals(arg) || arg.startsWith("-server=")) {
+                String address = arg.startsWith("-server=") ? arg.substring("-server=".length()) : null;
+                try {
+                    new CheckServer(CheckServer.address(address)).run();
+                } catch (IOException ex) {
+                    System.err.println("\nERROR: The server could not be started. " + ex.getMessage());
+                }
+                return;
+            }
+        }
+
+        run(Arrays.asList(args), null, StyleChecker::promptForFileName, System.out, System.err);
+    }
+
+    /**
+     * This method is responsible for everything main does, for a caller that is not the command line.
+     * @param args the command line arguments.
+     * @param workingDirectory the directory relative file names are found in, or null for the current one.
+     * @param prompt asked for the file name when no files are given.
+     * @param out where the batch summary goes.
+     * @param err where errors go.
+     */
+    static void run(List<String> args, Path workingDirectory, Supplier<String> prompt, PrintStream out,
+                    PrintStream err) {
+        boolean streamMode = false;
+        boolean watchMode = false;
+        boolean metrics = false;
+        long runBudget = 0;
+        boolean profile = false;
+        int threads = 1;
+        Path cacheDirectory = null;
+        long cacheMegabytes = 256;
+        ReportFormat format = new LogFormat();
+        ArrayList<String> inputs = new ArrayList<>();
+
+        for (String arg: args) {
+            if ("-stream".equals(arg)) {
+                streamMode = true;
+            } else if ("-watch".equals(arg)) {
+                watchMode = true;
+            } else if ("-metrics".equals(arg)) {
+                metrics = true;
+            } else if ("-run".equals(arg)) {
+                runBudget = DEFAULT_RUN_BUDGET;
+            } else if (arg.startsWith("-run=")) {
+                runBudget = Long.parseLong(arg.substring("-run=".length()));
+            } else if ("-profile".equals(arg)) {
+                profile = true;
+            } else if ("-parallel".equals(arg)) {
+                threads = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith("-parallel=")) {
+                threads = Integer.parseInt(arg.substring("-parallel=".length()));
+            } else if ("-cache".equals(arg)) {
+                cacheDirectory = ResultCache.defaultDirectory();
+            } else if (arg.startsWith("-cache=")) {
+                cacheDirectory = resolve(workingDirectory, arg.substring("-cache=".length()));
+            } else if (arg.startsWith("-cache-size=")) {
+                cacheMegabytes = Long.parseLong(arg.substring("-cache-size=".length()));
+            } else if (arg.startsWith("-format=")) {
+                try {
+                    format = ReportFormat.forName(arg.substring("-format=".length()));
+                } catch (IllegalArgumentException ex) {
+                    err.println("\nERROR: " + ex.getMessage());
+                    return;
+                }
+            } else {
+                inputs.add(arg);
+            }
+        }
+
+        ResultCache cache = cacheDirectory == null ? null : new ResultCache(cacheDirectory, cacheMegabytes << 20);
+        if (cache != null) {
+            cache.setOutput(err);
+        }
+
+        if (watchMode) {
+            if (inputs.isEmpty()) {
+                inputs.add(prompt.get());
+            }
+            WatchChecker watcher = new WatchChecker(format);
+            watcher.setOutput(out, err);
+            watcher.run(inputs);
+            return;
+        }
+
+        /*
+         * A bundle holds many files, so it is always checked as a batch
+         */
+        String inputFileName = null;
+        if (inputs.isEmpty()) {
+            inputFileName = prompt.get();
+            if (BatchChecker.isBundle(inputFileName)) {
+                inputs.add(inputFileName);
+            }
+        }
+
+        if (!inputs.isEmpty()) {
+            BatchChecker batch = new BatchChecker(streamMode, threads, cache, format);
+            batch.setWorkingDirectory(workingDirectory);
+            batch.setOutput(out, err);
+            batch.setRun(runBudget, profile);
+            batch.run(inputs);
+        } else {
+            try {
+                StyleChecker checker = new StyleChecker(inputFileName, streamMode);
+                checker.setThreads(threads);
+                checker.setCache(cache);
+                checker.setFormat(format);
+                checker.setWorkingDirectory(workingDirectory);
+                checker.check();
+                if (runBudget > 0) {
+                    printRun(inputFileName, checker, runBudget, profile, out);
+                }
+            } catch (IOException ex) {
+                err.println(ex.getMessage());
+            }
+        }
+
+        if (metrics) {
+            err.print(CheckMetrics.global().getSummary());
+        }
+    }
+
+    /**
+     * This method is responsible for running a file that has just been checked and printing where it stopped,
+     * or why it was not run.
+     */
+    static void printRun(String fileName, StyleChecker checker, long budget, boolean profile, PrintStream out)
+            throws IOException {
+        try {
+            PalMachine machine = checker.execute(budget, profile);
+            if (machine == null) {
+                out.println("\n" + fileName + " was not run as it has errors.");
+            } else {
+                machine.print(fileName, out);
+            }
+        } catch (IllegalArgumentException ex) {
+            out.println("\n" + fileName + " was not run. " + ex.getMessage());
+        }
+    }
+
+    /**
+     * @param arg a command line argument.
+     * @return true if it is one of the options main takes rather than a file to check.
+     */
+    static boolean isOption(String arg) {
+        return "-stream".equals(arg) || "-watch".equals(arg) || "-parallel".equals(arg) || "-cache".equals(arg)
+                || "-server".equals(arg) || "-metrics".equals(arg) || "-run".equals(arg) || "-profile".equals(arg)
+                || arg.startsWith("-parallel=") || arg.startsWith("-cache=") || arg.startsWith("-cache-size=")
+                || arg.startsWith("-format=") || arg.startsWith("-server=") || arg.startsWith("-run=");
+    }
+
+    private static String promptForFileName() {
+        Scanner keyboard = new Scanner(System.in);
+        System.out.println("Enter the filename of the file to check");
+
+        String inputFileName = keyboard.nextLine();
+        keyboard.close();
+
+        return inputFileName;
+    }
+
+    /**
+     * Creates a checker for a single file. The report is written next to it, with a .log extension unless
+     * another format is set.
+     * @param inputFileName the PAL source to check.
+     * @param streamMode true to check the file in a single pass without holding it in memory.
+     */
+    public StyleChecker(String inputFileName, boolean streamMode) {
+        this(inputFileName, null, reportBaseName(inputFileName), streamMode);
+    }
+
+    /**
+     * Creates a checker for a source that is not a file of its own, such as an entry of a zip bundle. The source
+     * is opened again each time its lines are read.
+     * @param inputFileName the name shown in the report, such as progs.zip!/a.pal.
+     * @param source opens the source.
+     * @param reportBaseName where the report goes, without its extension. Its directory must exist.
+     */
+    StyleChecker(String inputFileName, Source source, String reportBaseName, boolean streamMode) {
+        this.inputFileName = inputFileName;
+        this.reportBaseName = reportBaseName;
+        this.source = source;
+        this.streamMode = streamMode;
+    }
+
+    /**
+     * @return the file name without its extension, and without .gz before that for a compressed file.
+     */
+    static String reportBaseName(String fileName) {
+        if (fileName.endsWith(PalInput.GZIP_EXTENSION)) {
+            fileName = fileName.substring(0, fileName.length() - PalInput.GZIP_EXTENSION.length());
+        }
+        int extension = fileName.lastIndexOf('.');
+        return extension > Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf(File.separatorChar))
+                ? fileName.substring(0, extension) : fileName;
+    }
+
+    /**
+     * Creates a checker without a file, for one chunk of a file checked in parallel or for PalChecker. It never
+     * writes a report.
+     */
+    StyleChecker() {
+        this.inputFileName = null;
+        this.reportBaseName = null;
+        this.source = null;
+        this.streamMode = false;
+    }
+
+    /**
+     * Sets how many threads a large file may be split across. This has no effect in streaming mode.
+     * @param threads the number of threads, 1 to check on the calling thread.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the cache of earlier results to look the file up in before checking it, and to store its result in
+     * afterwards. This has no effect in streaming mode.
+     * @param cache the cache, or null to always check the file.
+     */
+    public void setCache(ResultCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the directory the file and its report are found in when the file name is relative.
+     * @param workingDirectory the directory, or null for the current one.
+     */
+    public void setWorkingDirectory(Path workingDirectory) {
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Sets the layout of the report, which also decides its extension.
+     * @param format the report format, .log by default.
+     */
+    public void setFormat(ReportFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * This method is responsible for checking the file and writing its report.
+     * @throws IOException if the input file cannot be read or the report cannot be written. The message is
+     *                     ready to be shown to the user.
+     */
+    public void check() throws IOException {
+        if (streamMode) {
+            checkInStream();
+            return;
+        }
+
+        String cacheKey = null;
+        try (PalInput input = openInput()) {
+            if (cache != null && input.isMapped()) {
+                cacheKey = ResultCache.key(input);
+
+                ResultCache.Entry cached = cache.get(cacheKey);
+                if (cached != null) {
+                    loadCachedResult(cached);
+                    generateReport();
+                    CheckMetrics.global().recordFile(counts(), null);
+                    return;
+                }
+            }
+            readInFile(input);
+        }
+
+        if (cacheKey != null) {
+            reportedLines = new ArrayList<>();
+            reportedLineNumbers = new int[1024];
+        }
+
+        try (ReportWriter output = openReport()) {
+            checkAndReport(output);
+        }
+
+        if (cacheKey != null) {
+            cache.put(cacheKey, new ResultCache.Entry(counts(),
+                    Arrays.copyOf(reportedLineNumbers, reportedLines.size()), reportedLines, warnings));
+            reportedLines = null;
+            reportedLineNumbers = null;
+        }
+    }
+
+    /**
+     * This method is responsible for checking a source held in memory and writing its report to a writer of the
+     * caller's. The file name is only used in the report header.
+     * @param text the program.
+     * @param output where the report goes. It is flushed but left open.
+     */
+    void check(CharSequence text, Writer output) throws IOException {
+        readText(text);
+        try (ReportWriter report = new ReportWriter(output, format)) {
+            checkAndReport(report);
+        }
+    }
+
+    private void checkAndReport(ReportWriter output) throws IOException {
+        output.header(inputFileName);
+        if (threads > 1 && data.size() >= 2 * MIN_LINES_PER_CHUNK) {
+            checkForCompileErrorsInParallel(output);
+        } else {
+            checkForCompileErrors(output);
+        }
+        output.summary(counts(), warnings);
+        CheckMetrics.global().recordFile(counts(), lineTimes);
+    }
+
+    /**
+     * This method is responsible for reading in the input file and putting each line into an arraylist
+     * for further processing. The lines of a mapped file stay views over the mapping, and a large one is scanned
+     * on as many threads as it may be checked on.
+     */
+    private void readInFile(PalInput input) throws IOException {
+        CheckEvent event = new CheckEvent.Read().start();
+
+        try {
+            if (threads > 1 && input.isMapped()) {
+                ExecutorService pool = Executors.newWorkStealingPool(threads);
+                try {
+                    data.addAll(input.readLines(pool, threads));
+                } finally {
+                    pool.shutdown();
+                }
+            } else {
+                CharSequence line;
+                while ((line = input.nextLine()) != null) {
+                    data.add(line);
+                }
+            }
+        } catch (IOException ex) {
+            throw new IOException("\nERROR: The input file " + inputFileName + " could not be read.", ex);
+        }
+
+        event.finish(inputFileName, data.size(), input.bytesRead(), 0);
+    }
+
+    private PalInput openInput() throws IOException {
+        try {
+            if (source != null) {
+                return source.open();
+            }
+            return workingDirectory == null || "-".equals(inputFileName) ? PalInput.open(inputFileName)
+                    : PalInput.open(workingDirectory.resolve(inputFileName));
+        } catch (NoSuchFileException ex) {
+            throw inputFileNotFound();
+        } catch (ZipException ex) {
+            throw new IOException("\nERROR: The input file " + inputFileName + " could not be read.", ex);
+        }
+    }
+
+    /**
+     * This method is responsible for taking the result of an earlier check of the same content in place of
+     * checking the file again.
+     */
+    private void loadCachedResult(ResultCache.Entry cached) {
+        totalErrors = cached.counts[0];
+        numIllFormedLabel = cached.counts[1];
+        numOpCodeErrors = cached.counts[2];
+        numTooFewOperands = cached.counts[3];
+        numTooManyOperands = cached.counts[4];
+        numIllFormedOperands = cached.counts[5];
+        numWrongOperandType = cached.counts[6];
+        numLabelProblems = cached.counts[7];
+        numLabelWarnings = cached.counts[8];
+        for (int i = 0; i < cached.errors.size(); i++) {
+            diagnostics.addRendered(cached.lines[i], cached.errors.get(i));
+        }
+        warnings.addAll(cached.warnings);
+    }
+
+    private FileNotFoundException inputFileNotFound() {
+        return new FileNotFoundException("\nERROR: The input file name " + inputFileName + " was not found.\n"
+                + "Please check your input file and try again.");
+    }
+
+    /**
+     * This method is responsible for all of the heavy lifting. It will run through every line of code read
+     * in by the readInFile method and check for the errors, handing each line to the report as it goes.
+     */
+    private void checkForCompileErrors(ReportWriter output) {
+        collectLabels();
+
+        CheckEvent event = new CheckEvent.CheckLines().start();
+        long lineStart = System.nanoTime();
+        for (CharSequence line: data) {
+            lexer.lex(line);
+            int counted = totalErrors;
+            int outcome = checkLine(line);
+            lineStart = timeLine(counted, lineStart);
+            flushCheckedLines(output);
+            if (outcome == LINE_END) {
+                break;
+            }
+        }
+
+        collectWarnings();
+        event.finish(inputFileName, checkedLines, 0, totalErrors + numLabelWarnings);
+    }
+
+    /**
+     * This method is responsible for retrieving every label defined in the lines read in.
+     */
+    private void collectLabels() {
+        CheckEvent event = new CheckEvent.CollectLabels().start();
+
+        for (CharSequence line: data) {
+            lexer.lex(line);
+            collectLabel();
+        }
+
+        event.finish(inputFileName, data.size(), 0, 0);
+    }
+
+    /**
+     * This method is responsible for counting a line as checked and timing it under the category of its error.
+     * @param counted the total errors before the line was checked.
+     * @param start when the line was started.
+     * @return when the line was finished, which is when the next one starts.
+     */
+    private long timeLine(int counted, long start) {
+        long now = System.nanoTime();
+        checkedLines++;
+        lineTimes.record(totalErrors > counted ? lastCategory : CheckMetrics.NO_ERROR, now - start);
+        return now;
+    }
+
+    /**
+     * This method is responsible for the same check as checkForCompileErrors, with the lines split into chunks
+     * that are checked on separate threads.
+     *
+     * The first pass finds, for each chunk, the labels it defines, the memory locations its DEF lines introduce
+     * and whether it holds the END command. None of these depend on other lines, so the chunks are independent.
+     * The second pass checks each chunk up to END with every label in the file and the memory locations from
+     * the chunks before it, which gives every line the same view it has when the file is checked in order.
+     * The lines, counts and label references of the chunks are then joined in order, each chunk going to the
+     * report as soon as it and every chunk before it are done.
+     */
+    private void checkForCompileErrorsInParallel(ReportWriter output) throws IOException {
+        int chunks = Math.min(threads * 4, data.size() / MIN_LINES_PER_CHUNK);
+        int[] chunkStart = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            chunkStart[i] = (int) ((long) data.size() * i / chunks);
+        }
+
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+        try {
+            /*
+             * Retrieve all labels, memory locations and the END command of each chunk
+             */
+            CheckEvent labelEvent = new CheckEvent.CollectLabels().start();
+            List<Callable<StyleChecker>> scans = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                List<CharSequence> lines = data.subList(chunkStart[i], chunkStart[i + 1]);
+                scans.add(() -> scanChunk(lines));
+            }
+            List<StyleChecker> scanned = collect(pool.invokeAll(scans));
+
+            int endChunk = -1;
+            for (int i = 0; i < chunks; i++) {
+                symbols.addLabels(scanned.get(i).symbols);
+                if (endChunk < 0 && scanned.get(i).endLine >= 0) {
+                    endChunk = i;
+                }
+            }
+            if (endChunk < 0) {
+                endChunk = chunks - 1;
+            }
+            labelEvent.finish(inputFileName, data.size(), 0, 0);
+
+            /*
+             * Check each chunk up to the END command. The chunks take their labels from a copy, since the symbol
+             * table of the file gains the symbols of each chunk as it is joined while later chunks still run.
+             */
+            CheckEvent checkEvent = new CheckEvent.CheckLines().start();
+            SymbolTable labels = new SymbolTable();
+            labels.addLabels(symbols);
+            List<Future<StyleChecker>> checks = new ArrayList<>();
+            for (int i = 0; i <= endChunk; i++) {
+                List<CharSequence> lines = data.subList(chunkStart[i], chunkStart[i + 1]);
+                List<StyleChecker> before = scanned.subList(0, i);
+                checks.add(pool.submit(() -> checkChunk(lines, labels, before)));
+            }
+
+            for (int i = 0; i < checks.size(); i++) {
+                StyleChecker chunk = result(checks.get(i));
+                checks.set(i, null);
+
+                diagnostics.append(chunk.diagnostics, chunkStart[i]);
+                flushCheckedLines(output);
+                symbols.addReferences(chunk.symbols);
+                flow.append(chunk.flow, chunk.symbols, symbols);
+                checkedLines += chunk.checkedLines;
+                lineTimes.add(chunk.lineTimes);
+                totalErrors += chunk.totalErrors;
+                numIllFormedLabel += chunk.numIllFormedLabel;
+                numOpCodeErrors += chunk.numOpCodeErrors;
+                numTooFewOperands += chunk.numTooFewOperands;
+                numTooManyOperands += chunk.numTooManyOperands;
+                numIllFormedOperands += chunk.numIllFormedOperands;
+                numWrongOperandType += chunk.numWrongOperandType;
+                numLabelProblems += chunk.numLabelProblems;
+            }
+
+            collectWarnings();
+            checkEvent.finish(inputFileName, checkedLines, 0, totalErrors + numLabelWarnings);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("\nERROR: The check of " + inputFileName + " was interrupted.", ex);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * This method is responsible for the first pass over a chunk. The labels it defines and the memory locations
+     * its DEF lines introduce end up in the symbol table of the returned checker, along with the line of the END
+     * command if the chunk has one.
+     */
+    private static StyleChecker scanChunk(List<CharSequence> lines) {
+        StyleChecker chunk = new StyleChecker();
+
+        for (int i = 0; i < lines.size(); i++) {
+            CharSequence line = lines.get(i);
+            chunk.lexer.lex(line);
+            chunk.collectLabel();
+
+            if (chunk.endLine < 0 && (chunk.definesMemoryLocation() || chunk.lexer.opCodeIs("END"))) {
+                if (chunk.checkLine(line) == LINE_END) {
+                    chunk.endLine = i;
+                }
+            }
+        }
+
+        chunk.diagnostics.clear();
+        return chunk;
+    }
+
+    /**
+     * This method is responsible for checking the lines of a chunk up to the END command.
+     * @param lines the lines of the chunk.
+     * @param labels every label in the file, which no thread changes while the chunks are checked.
+     * @param before the first pass over every chunk in front of this one.
+     */
+    private static StyleChecker checkChunk(List<CharSequence> lines, SymbolTable labels, List<StyleChecker> before) {
+        StyleChecker chunk = new StyleChecker();
+        chunk.symbols.addLabels(labels);
+        for (StyleChecker scanned: before) {
+            chunk.symbols.addMemoryLocations(scanned.symbols);
+        }
+
+        long lineStart = System.nanoTime();
+        for (CharSequence line: lines) {
+            chunk.lexer.lex(line);
+            int counted = chunk.totalErrors;
+            int outcome = chunk.checkLine(line);
+            lineStart = chunk.timeLine(counted, lineStart);
+            if (outcome == LINE_END) {
+                break;
+            }
+        }
+        return chunk;
+    }
+
+    private static List<StyleChecker> collect(List<Future<StyleChecker>> futures) throws InterruptedException {
+        List<StyleChecker> chunks = new ArrayList<>();
+        for (Future<StyleChecker> future: futures) {
+            chunks.add(result(future));
+        }
+        return chunks;
+    }
+
+    private static StyleChecker result(Future<StyleChecker> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * This method is responsible for checking the file in a single pass. Each line is read, checked and written
+     * to the report as soon as every branch before it has been resolved, so only the lines behind the oldest
+     * unresolved forward reference are held, and past MAX_HELD_LINES they are held on disk rather than in memory.
+     * The lines after END are still read to collect their labels, which keeps the diagnostics identical to the
+     * two pass check.
+     */
+    private void checkInStream() throws IOException {
+        try (PalInput file = openInput(); ReportWriter output = openReport()) {
+            output.header(inputFileName);
+            CheckEvent event = new CheckEvent.CheckLines().start();
+            long lines = 0;
+
+            try {
+                boolean ended = false;
+                CharSequence line;
+                long lineStart = System.nanoTime();
+
+                while ((line = file.nextLine()) != null) {
+                    lines++;
+                    lexer.lex(line);
+                    collectLabel();
+
+                    if (!ended) {
+                        int counted = totalErrors;
+                        ended = checkLine(line) == LINE_END;
+                        lineStart = timeLine(counted, lineStart);
+                        if (spill == null) {
+                            flushCheckedLines(output);
+                        }
+                        if (spill != null || diagnostics.size() > MAX_HELD_LINES) {
+                            spillCheckedLines();
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                throw new IOException("\nERROR: The input file " + inputFileName + " could not be read.", ex);
+            }
+
+            /*
+             * Any branch still waiting refers to a label that is never defined
+             */
+            for (PendingLabel pending: pendingLabels) {
+                if (!pending.resolved) {
+                    pending.code = labelOperandError(pending.operand);
+                    if (pending.lineIndex >= flushedLines) {
+                        diagnostics.setError(pending.lineIndex - flushedLines, pending.code, pending.slot);
+                    }
+                    flow.clearInstruction(pending.flowLine);
+                }
+            }
+            if (spill != null) {
+                writeSpilledLines(output);
+            }
+            pendingLabels.clear();
+            pendingByLabel.clear();
+            flushCheckedLines(output);
+
+            collectWarnings();
+            event.finish(inputFileName, lines, file.bytesRead(), totalErrors + numLabelWarnings);
+            output.summary(counts(), warnings);
+            CheckMetrics.global().recordFile(counts(), lineTimes);
+        } finally {
+            if (spill != null) {
+                spill.close();
+                spill = null;
+            }
+        }
+    }
+
+    /**
+     * This method is responsible for moving every checked line to the spill, which is started by the first call.
+     * Once lines are spilled every line after them is too, so the report stays in order.
+     */
+    private void spillCheckedLines() throws IOException {
+        if (spill == null) {
+            spill = new LineSpill();
+            spillStart = flushedLines;
+        }
+        while (!pendingLabels.isEmpty() && pendingLabels.peekFirst().resolved) {
+            pendingLabels.removeFirst();
+        }
+
+        int spilled = diagnostics.size();
+        spill.write(diagnostics, spilled);
+        flushedLines += spilled;
+    }
+
+    /**
+     * This method is responsible for writing the spilled lines to the report once the file has ended, with the
+     * error of each branch whose label was never defined.
+     */
+    private void writeSpilledLines(ReportWriter output) throws IOException {
+        spillCheckedLines();
+
+        Iterator<PendingLabel> pending = pendingLabels.iterator();
+        PendingLabel next = nextUnresolved(pending);
+        try {
+            for (int index = spillStart; spill.read(diagnostics); index++) {
+                if (next != null && next.lineIndex == index) {
+                    diagnostics.setError(0, next.code, next.slot);
+                    next = nextUnresolved(pending);
+                }
+                output.line(diagnostics.line(0), diagnostics.source(0), diagnostics.message(0));
+                diagnostics.removeFirst(1);
+            }
+        } catch (IOException ex) {
+            throw new IOException("\nERROR: The lines of " + inputFileName + " held for the report could not be "
+                    + "read back.", ex);
+        }
+    }
+
+    private static PendingLabel nextUnresolved(Iterator<PendingLabel> pending) {
+        while (pending.hasNext()) {
+            PendingLabel next = pending.next();
+            if (!next.resolved) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method is responsible for writing every checked line that no longer waits on a forward label
+     * reference and dropping it from memory.
+     * @param output the report being written, or null to keep every line for generateReport.
+     */
+    private void flushCheckedLines(ReportWriter output) {
+        if (output == null) {
+            return;
+        }
+
+        while (!pendingLabels.isEmpty() && pendingLabels.peekFirst().resolved) {
+            pendingLabels.removeFirst();
+        }
+
+        int writable = pendingLabels.isEmpty() ? diagnostics.size()
+                : pendingLabels.peekFirst().lineIndex - flushedLines;
+        for (int i = 0; i < writable; i++) {
+            output.line(diagnostics.line(i), diagnostics.source(i), diagnostics.message(i));
+            if (reportedLines != null) {
+                if (reportedLines.size() == reportedLineNumbers.length) {
+                    reportedLineNumbers = Arrays.copyOf(reportedLineNumbers, reportedLines.size() * 2);
+                }
+                reportedLineNumbers[reportedLines.size()] = diagnostics.line(i);
+                reportedLines.add(diagnostics.entry(i));
+            }
+        }
+
+        diagnostics.removeFirst(writable);
+        flushedLines += writable;
+    }
+
+    /**
+     * This method is responsible for recording the label defined on the line last read by the lexer, if any.
+     * In streaming mode this also resolves the branches that were waiting for it.
+     */
+    private void collectLabel() {
+        if (lexer.hasLabel()) {
+            symbols.defineLabel(lexer.line(), lexer.labelStart(), lexer.labelEnd());
+
+            if (!pendingByLabel.isEmpty()) {
+                ArrayList<PendingLabel> waiting = pendingByLabel.remove(lexer.label());
+                if (waiting != null) {
+                    for (PendingLabel pending: waiting) {
+                        pending.resolved = true;
+                        symbols.referenceLabel(pending.operand);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This method is responsible for checking the line last read by the lexer and adding it, along with any
+     * error found, to the diagnostics.
+     * @param line the raw source line.
+     * @return LINE_SKIPPED for lines that are not reported, LINE_END once the END command is reached,
+     *         LINE_PENDING if the line is waiting on a forward label reference and LINE_CHECKED otherwise.
+     */
+    private int checkLine(CharSequence line) {
+        lineNumber++;
+        flow.line();
+        if (lexer.hasLabel()) {
+            int label = symbols.find(lexer.line(), lexer.labelStart(), lexer.labelEnd());
+            if (label >= 0) {
+                flow.label(label);
+            }
+        }
+
+        /*
+         * Empty line
+         */
+        if (lexer.isBlank()) {  // if line is blank or contains only spaces
+            return LINE_SKIPPED;
+        }
+
+        /*
+         * Comments
+         */
+        int length = line.length();
+        if (lexer.hasComment()) {
+            if (!lexer.endsWithElo()) {  //check that line has end line operator
+                return reportError(line, length, DiagnosticStore.NO_END_LINE_OPERATOR, -1);
+            } else if (lexer.isCodeBlank()) {  //if the text before the comment is only spaces
+                return LINE_SKIPPED;
+            } else {  //drop the comment
+                length = lexer.codeEnd();
+            }
+        }
+
+        /*
+         * Ill Formed Label
+         */
+        if (lexer.hasLabel()) {
+            if (lexer.labelEnd() - lexer.labelStart() > 5) {
+                return reportError(line, length, DiagnosticStore.LABEL_TOO_LONG, -1);
+            } else if (lexer.hasDigit(lexer.labelStart(), lexer.labelEnd())) {
+                return reportError(line, length, DiagnosticStore.LABEL_HAS_DIGIT, -1);
+            }
+        }
+
+        /*
+         * Start and end command
+         */
+        if (lexer.opCodeIs("SRT")) {
+            flow.instruction(FlowAnalysis.START, 0, 0);
+            diagnostics.add(lineNumber, line, length, DiagnosticStore.NONE, -1);
+            return LINE_CHECKED;
+        }
+        if (lexer.opCodeIs("END")) {
+            flow.instruction(FlowAnalysis.HALT, 0, 0);
+            diagnostics.add(lineNumber, line, length, DiagnosticStore.NONE, -1);
+            return LINE_END;
+        }
+
+        /*
+         * Invalid Opcode
+         */
+        int opCodeId = lexer.hasOpCode() ? symbols.find(line, lexer.opCodeStart(), lexer.opCodeEnd()) : -1;
+        if (!symbols.isOpCode(opCodeId)) {
+            return reportError(line, length, DiagnosticStore.INVALID_OPCODE, -1);
+        }
+        OpCodeRule rule = OpCodeRule.forId(opCodeId);
+        int operands = lexer.operandCount();
+
+        /*
+         * Too many or too few operands
+         */
+        if (operands < rule.arity) {
+            return reportError(line, length, DiagnosticStore.TOO_FEW_OPERANDS, opCodeId);
+        } else if (operands > rule.arity) {
+            return reportError(line, length, DiagnosticStore.TOO_MANY_OPERANDS, opCodeId);
+        }
+
+        /*
+         * Ill Formed Operand and wrong operand type
+         */
+        for (int i = 0; i < rule.arity; i++) {
+            if (i != rule.labelSlot && (classify(i) & rule.allowed[i]) == 0) {
+                return operandError(line, length, rule.slots[i], i);
+            }
+        }
+
+        if (rule.definesMemoryLocation) {
+            symbols.defineMemoryLocation(line, lexer.operandStart(0), lexer.operandEnd(0));
+        }
+        if (rule.labelSlot >= 0) {
+            return checkLabelOperand(line, length, rule);
+        }
+
+        recordInstruction(rule, -1);
+        diagnostics.add(lineNumber, line, length, DiagnosticStore.NONE, -1);
+        return LINE_CHECKED;
+    }
+
+    /**
+     * This method is responsible for adding the line being checked with its error and counting the error.
+     * @param line the raw source line.
+     * @param length how much of the line is shown.
+     * @param code the DiagnosticStore message code.
+     * @param detail the operand the message names, the opcode id of an arity message, or -1.
+     * @return LINE_CHECKED.
+     */
+    private int reportError(CharSequence line, int length, int code, int detail) {
+        diagnostics.add(lineNumber, line, length, code, detail);
+        countError(DiagnosticStore.categoryOf(code));
+        return LINE_CHECKED;
+    }
+
+    /**
+     * This method is responsible for finding every class an operand of the line last read by the lexer
+     * belongs to.
+     * @return the OpCodeRule operand class bits.
+     */
+    private int classify(int operand) {
+        int start = lexer.operandStart(operand);
+        int end = lexer.operandEnd(operand);
+        int id = symbols.find(lexer.line(), start, end);
+        int classes = symbols.classify(id);
+        operandIds[operand] = id;
+
+        if (lexer.operandHasDigit(operand)) {
+            classes |= OpCodeRule.DIGIT;
+            if (end - start <= 5) {
+                classes |= OpCodeRule.MEMORY_NAME;
+            }
+        } else {
+            classes |= OpCodeRule.MEMORY_NAME;
+        }
+        return classes;
+    }
+
+    /**
+     * This method is responsible for reporting an operand that does not fit its slot.
+     * @param line the raw source line.
+     * @param length how much of the line is shown.
+     * @param slot the kind of slot the operand is in.
+     * @param operand the position of the operand.
+     * @return LINE_CHECKED.
+     */
+    private int operandError(CharSequence line, int length, int slot, int operand) {
+        switch (slot) {
+            case OpCodeRule.VALUE:
+            case OpCodeRule.REGISTER_OR_NUMBER:
+                return reportError(line, length, DiagnosticStore.NOT_A_VALUE, operand);
+            case OpCodeRule.NEW_MEMORY_LOCATION:
+                return reportError(line, length, DiagnosticStore.NOT_A_MEMORY_NAME, operand);
+            default:
+                if (lexer.operandHasDigit(operand)) {
+                    return reportError(line, length, DiagnosticStore.NOT_A_MEMORY_LOCATION, operand);
+                } else {
+                    return reportError(line, length, DiagnosticStore.UNKNOWN_MEMORY_LOCATION, operand);
+                }
+        }
+    }
+
+    /**
+     * @return true if the line last read by the lexer has an opcode whose rule defines a memory location.
+     */
+    private boolean definesMemoryLocation() {
+        int opCodeId = lexer.hasOpCode() ? symbols.find(lexer.line(), lexer.opCodeStart(), lexer.opCodeEnd()) : -1;
+        return symbols.isOpCode(opCodeId) && OpCodeRule.forId(opCodeId).definesMemoryLocation;
+    }
+
+    /**
+     * This method is responsible for checking the label operand of a branch. In streaming mode a label that
+     * has not been defined yet is recorded as pending and checked once the label shows up or the file ends.
+     * @param line the raw source line.
+     * @param length how much of the line is shown.
+     * @param rule the rule of the branch.
+     * @return LINE_PENDING if the check was deferred, LINE_CHECKED otherwise.
+     */
+    private int checkLabelOperand(CharSequence line, int length, OpCodeRule rule) {
+        int operand = rule.labelSlot;
+        int start = lexer.operandStart(operand);
+        int end = lexer.operandEnd(operand);
+
+        if (symbols.isLabel(lexer.line(), start, end)) {
+            symbols.referenceLabel(lexer.line(), start, end);
+            recordInstruction(rule, symbols.find(lexer.line(), start, end));
+            diagnostics.add(lineNumber, line, length, DiagnosticStore.NONE, -1);
+            return LINE_CHECKED;
+        }
+
+        if (streamMode) {
+            recordInstruction(rule, symbols.intern(lexer.line(), start, end));
+            PendingLabel pending = new PendingLabel(flushedLines + diagnostics.size(), flow.size() - 1, operand,
+                    lexer.operand(operand));
+            pendingLabels.addLast(pending);
+            pendingByLabel.computeIfAbsent(pending.operand, key -> new ArrayList<>()).add(pending);
+            diagnostics.add(lineNumber, line, length, DiagnosticStore.NONE, -1);
+            return LINE_PENDING;
+        }
+
+        diagnostics.add(lineNumber, line, length, labelOperandError(lexer.operand(operand)), operand);
+        return LINE_CHECKED;
+    }
+
+    /**
+     * This method is responsible for recording a valid instruction on the line last read by the lexer for the
+     * control flow warnings. Every operand but the label must have been classified.
+     * @param rule the rule of the opcode.
+     * @param target the symbol id of the label a branch goes to, ignored for other opcodes.
+     */
+    private void recordInstruction(OpCodeRule rule, int target) {
+        int reads = 0;
+        int writes = 0;
+        for (int i = 0; i < rule.arity; i++) {
+            if (i == rule.labelSlot) {
+                continue;
+            }
+
+            boolean read = (rule.readSlots & 1 << i) != 0;
+            int register = symbols.registerNumber(operandIds[i]);
+            if (register >= 0) {
+                if (read) {
+                    reads |= 1 << register;
+                }
+                if ((rule.writeSlots & 1 << i) != 0) {
+                    writes |= 1 << register;
+                }
+            } else if (read && symbols.isMemoryLocation(operandIds[i])) {
+                flow.readMemory(operandIds[i]);
+            }
+        }
+
+        if (rule.definesMemoryLocation) {
+            flow.defineMemory(symbols.find(lexer.line(), lexer.operandStart(0), lexer.operandEnd(0)));
+        }
+        if (rule.labelSlot < 0) {
+            flow.instruction(FlowAnalysis.PLAIN, reads, writes);
+        } else {
+            flow.instruction(rule.conditional ? FlowAnalysis.CONDITIONAL : FlowAnalysis.JUMP, reads, writes);
+            flow.branch(target);
+        }
+    }
+
+    /**
+     * This method is responsible for counting the error for a branch to a label that does not exist.
+     * @param operand the label operand of the branch.
+     * @return the DiagnosticStore message code of the error.
+     */
+    private int labelOperandError(String operand) {
+        int code = symbols.isRegister(operand) ? DiagnosticStore.NOT_A_MEMORY_LOCATION : DiagnosticStore.UNKNOWN_LABEL;
+        countError(DiagnosticStore.categoryOf(code));
+        return code;
+    }
+
+    /**
+     * This method is responsible for counting an error in the total and in its category.
+     * @param category one of the error categories, such as ILL_FORMED_LABEL.
+     */
+    void countError(int category) {
+        totalErrors++;
+        lastCategory = category;
+        switch (category) {
+            case ILL_FORMED_LABEL: numIllFormedLabel++; break;
+            case INVALID_OPCODE: numOpCodeErrors++; break;
+            case TOO_FEW_OPERANDS: numTooFewOperands++; break;
+            case TOO_MANY_OPERANDS: numTooManyOperands++; break;
+            case ILL_FORMED_OPERANDS: numIllFormedOperands++; break;
+            case WRONG_OPERAND_TYPE: numWrongOperandType++; break;
+            case LABEL_PROBLEM: numLabelProblems++; break;
+        }
+    }
+
+    /**
+     * This method is responsible for warning about every label that no branch refers to, then about what the
+     * control flow of the lines checked shows.
+     */
+    private void collectWarnings() {
+        /*
+         * Label Problem
+         */
+        for (String value: symbols.unreferencedLabels()) {
+            numLabelWarnings++;
+            warnings.add(value + " is never accessed.");
+        }
+
+        for (String warning: flow.warnings(symbols)) {
+            numLabelWarnings++;
+            warnings.add(warning);
+        }
+    }
+
+    /**
+     * This method is responsible for writing a report from lines that have all been checked already.
+     */
+    void generateReport() throws IOException {
+        try (ReportWriter output = openReport()) {
+            output.header(inputFileName);
+            for (int i = 0; i < diagnostics.size(); i++) {
+                output.line(diagnostics.line(i), diagnostics.source(i), diagnostics.message(i));
+            }
+            output.summary(counts(), warnings);
+        }
+    }
+
+    private ReportWriter openReport() throws FileNotFoundException {
+        return new ReportWriter(resolve(workingDirectory, reportBaseName + format.extension()).toString(), format);
+    }
+
+    static Path resolve(Path workingDirectory, String fileName) {
+        return workingDirectory == null ? Paths.get(fileName) : workingDirectory.resolve(fileName);
+    }
+
+    /**
+     * @return the total errors, the errors of each category and the warnings, in the order of the summary.
+     */
+    private int[] counts() {
+        return new int[] {totalErrors, numIllFormedLabel, numOpCodeErrors, numTooFewOperands, numTooManyOperands,
+                numIllFormedOperands, numWrongOperandType, numLabelProblems, numLabelWarnings};
+    }
+
+    /*
+     * Used by WatchChecker, which checks lines one at a time and replays the results it has cached for the others.
+     */
+    PalLexer getLexer() {
+        return lexer;
+    }
+
+    SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    DiagnosticStore getDiagnostics() {
+        return diagnostics;
+    }
+
+    int checkLexedLine(String line) {
+        return checkLine(line);
+    }
+
+    void finishReport() throws IOException {
+        collectWarnings();
+        generateReport();
+    }
+
+    static boolean isEnd(int outcome) {
+        return outcome == LINE_END;
+    }
+
+    /**
+     * @return the instruction the line last checked took in the control flow, as FlowAnalysis.instructionAt gives
+     *         it.
+     */
+    int lastFlowInstruction() {
+        return flow.instructionAt(flow.size() - 1);
+    }
+
+    /**
+     * @return the names of the memory locations the line last checked reads.
+     */
+    String[] lastFlowMemoryReads() {
+        int[] ids = flow.memoryReadsOnLine();
+        String[] names = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = symbols.name(ids[i]);
+        }
+        return names;
+    }
+
+    /**
+     * This method is responsible for recording a line whose result is replayed rather than checked again, so it
+     * still takes its place in the control flow. The line is not lexed again, everything it did is given.
+     * @param label the label defined on the line, or null.
+     * @param instruction the instruction from lastFlowInstruction when the line was checked.
+     * @param target the label the branch on the line goes to, or null.
+     * @param memoryReads the memory locations from lastFlowMemoryReads when the line was checked.
+     * @param memoryLocation the memory location the line defines, or null.
+     */
+    void replayFlow(String label, int instruction, String target, String[] memoryReads, String memoryLocation) {
+        lineNumber++;
+        flow.line();
+        int labelId = label == null ? -1 : symbols.find(label);
+        if (labelId >= 0) {
+            flow.label(labelId);
+        }
+        if ((instruction & 0xFF) == FlowAnalysis.NONE) {
+            return;
+        }
+
+        for (String memoryRead: memoryReads) {
+            flow.readMemory(symbols.find(memoryRead));
+        }
+        if (memoryLocation != null) {
+            flow.defineMemory(symbols.find(memoryLocation));
+        }
+        flow.instruction(instruction & 0xFF, instruction >>> 8 & 0xFF, instruction >>> 16 & 0xFF);
+        if (target != null) {
+            flow.branch(symbols.find(target));
+        }
+    }
+
+    /**
+     * This method is responsible for lowering the file just checked into a program and running it. The lines
+     * are read again if they were not kept, as in streaming mode or when the result came from the cache.
+     * @param budget the most instructions to run.
+     * @param countOpCodes true to count how many times each opcode runs.
+     * @return the machine once it has stopped, or null if the file has errors.
+     * @throws IllegalArgumentException if a number in the file is not octal.
+     */
+    PalMachine execute(long budget, boolean countOpCodes) throws IOException {
+        PalProgram program = compile();
+        if (program == null) {
+            return null;
+        }
+
+        PalMachine machine = new PalMachine(program, countOpCodes);
+        machine.run(budget);
+        return machine;
+    }
+
+    /**
+     * @return the file just checked as a program, or null if it has errors.
+     * @throws IllegalArgumentException if a number in the file is not octal.
+     */
+    PalProgram compile() throws IOException {
+        if (totalErrors > 0) {
+            return null;
+        }
+        if (data.isEmpty() && inputFileName != null) {
+            readInFile();
+        }
+        return PalProgram.compile(data);
+    }
+
+    /*
+     * Used by the benchmarks, which time reading the file, checking it and writing the report on their own.
+     * Lines checked this way are kept for generateReport instead of being written as they go.
+     */
+    void readInFile() throws IOException {
+        try (PalInput input = openInput()) {
+            readInFile(input);
+        }
+    }
+
+    void checkForCompileErrors() {
+        checkForCompileErrors(null);
+    }
+
+    /*
+     * Used by PalChecker, which keeps checkers between calls. A reset checker holds nothing from the last
+     * check but keeps the storage of its lists and symbol table.
+     */
+    void reset() {
+        totalErrors = 0;
+        numIllFormedLabel = 0;
+        numOpCodeErrors = 0;
+        numTooFewOperands = 0;
+        numTooManyOperands = 0;
+        numIllFormedOperands = 0;
+        numWrongOperandType = 0;
+        numLabelProblems = 0;
+        numLabelWarnings = 0;
+        lastCategory = -1;
+        checkedLines = 0;
+        lineNumber = 0;
+        endLine = -1;
+        flushedLines = 0;
+        reportedLines = null;
+        reportedLineNumbers = null;
+        data.clear();
+        diagnostics.clear();
+        warnings.clear();
+        pendingLabels.clear();
+        pendingByLabel.clear();
+        symbols.clear();
+        flow.clear();
+        lexer.lex("");
+    }
+
+    /**
+     * @return how many lines have been read since the checker was made or reset.
+     */
+    int linesRead() {
+        return data.size();
+    }
+
+    void readInput(PalInput input) throws IOException {
+        readInFile(input);
+    }
+
+    /**
+     * This method is responsible for splitting text into lines the same way PalInput splits a file. Each line
+     * is a view over the text.
+     */
+    void readText(CharSequence text) {
+        CheckEvent event = new CheckEvent.Read().start();
+
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                data.add(CharBuffer.wrap(text, start, i));
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            data.add(CharBuffer.wrap(text, start, text.length()));
+        }
+
+        event.finish(inputFileName, data.size(), text.length(), 0);
+    }
+
+    /**
+     * This method is responsible for checking the lines read in and keeping every error found, without
+     * writing a report. Lines without an error are dropped as soon as they are checked, and the messages are
+     * only built if the result is asked for them. The lines with an error are copied, as the result outlives
+     * the text they came from.
+     */
+    CheckResult checkForResult() {
+        collectLabels();
+
+        CheckEvent event = new CheckEvent.CheckLines().start();
+        long lineStart = System.nanoTime();
+        for (CharSequence line: data) {
+            int counted = totalErrors;
+            int entries = diagnostics.size();
+            lexer.lex(line);
+            int outcome = checkLine(line);
+            lineStart = timeLine(counted, lineStart);
+
+            if (diagnostics.size() > entries && totalErrors == counted) {
+                diagnostics.removeLast();
+            }
+            if (outcome == LINE_END) {
+                break;
+            }
+        }
+
+        collectWarnings();
+        event.finish(inputFileName, checkedLines, 0, totalErrors + numLabelWarnings);
+        CheckMetrics.global().recordFile(counts(), lineTimes);
+        DiagnosticStore errors = diagnostics.filter(-1);
+        errors.detach();
+        return new CheckResult(errors, counts(), new ArrayList<>(warnings));
+    }
+
+    public String getInputFileName() {
+        return inputFileName;
+    }
+
+    public int getTotalErrors() {
+        return totalErrors;
+    }
+
+    public int getNumIllFormedLabel() {
+        return numIllFormedLabel;
+    }
+
+    public int getNumOpCodeErrors() {
+        return numOpCodeErrors;
+    }
+
+    public int getNumTooFewOperands() {
+        return numTooFewOperands;
+    }
+
+    public int getNumTooManyOperands() {
+        return numTooManyOperands;
+    }
+
+    public int getNumIllFormedOperands() {
+        return numIllFormedOperands;
+    }
+
+    public int getNumWrongOperandType() {
+        return numWrongOperandType;
+    }
+
+    public int getNumLabelProblems() {
+        return numLabelProblems;
+    }
+
+    public int getNumLabelWarnings() {
+        return numLabelWarnings;
+    }
+}
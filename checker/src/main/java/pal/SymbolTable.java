@@ -0,0 +1,355 @@
+package pal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This class is responsible for holding every name the checker looks up: opcodes, registers, labels and
+ * memory locations. Each name is interned once to an int id in an open addressing hash table, and what is
+ * known about it (which kind of symbol it is, whether a label was defined or branched to) is kept in bitsets
+ * indexed by that id.
+ */
+public class SymbolTable {
+
+    private static final String[] REGISTERS = {"R0", "R1", "R2", "R3", "R4", "R5", "R6", "R7"};
+
+    private String[] names = new String[64];
+    private int[] slots = new int[128];  // id + 1 of the name hashed to each slot, 0 when empty
+    private int size = 0;
+
+    private final BitSet opCodes = new BitSet();
+    private final BitSet registers = new BitSet();
+    private final BitSet labels = new BitSet();
+    private final BitSet memoryLocations = new BitSet();
+
+    /*
+     * A label may be defined more than once, so the definitions are kept in order along with how many times
+     * each label was defined and branched to.
+     */
+    private int[] labelDefinitions = new int[64];
+    private int labelDefinitionCount = 0;
+    private int[] definedCount = new int[64];
+    private int[] referencedCount = new int[64];
+
+    public SymbolTable() {
+        clear();
+    }
+
+    /**
+     * This method is responsible for forgetting every label and memory location so the table can be used
+     * for another file. Opcodes and registers are interned again with the same ids, the opcodes first so
+     * their ids are the positions of their rules.
+     */
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(slots, 0);
+        Arrays.fill(definedCount, 0, size, 0);
+        Arrays.fill(referencedCount, 0, size, 0);
+        size = 0;
+        labelDefinitionCount = 0;
+        opCodes.clear();
+        registers.clear();
+        labels.clear();
+        memoryLocations.clear();
+
+        for (OpCodeRule rule: OpCodeRule.RULES) {
+            opCodes.set(intern(rule.name));
+        }
+        for (String register: REGISTERS) {
+            registers.set(intern(register));
+        }
+    }
+
+    /**
+     * This method is responsible for returning the id of a name, adding it to the table if it is new.
+     * @param name the symbol name.
+     * @return the id of the name.
+     */
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    /**
+     * This method is responsible for returning the id of the name between start and end of some text, adding
+     * it to the table if it is new. A String is only made for names that are not in the table yet.
+     * @param text the text holding the name.
+     * @param start the offset of the first character of the name.
+     * @param end the offset just past the name.
+     * @return the id of the name.
+     */
+    public int intern(CharSequence text, int start, int end) {
+        int mask = slots.length - 1;
+        int slot = hash(text, start, end) & mask;
+
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (matches(names[id], text, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            definedCount = Arrays.copyOf(definedCount, id * 2);
+            referencedCount = Arrays.copyOf(referencedCount, id * 2);
+        }
+        names[id] = text.subSequence(start, end).toString();
+        slots[slot] = id + 1;
+
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * This method is responsible for finding the id of a name without adding it.
+     * @param name the symbol name, may be null.
+     * @return the id of the name or -1 if it is not in the table.
+     */
+    public int find(String name) {
+        return name == null ? -1 : find(name, 0, name.length());
+    }
+
+    /**
+     * This method is responsible for finding the id of the name between start and end of some text without
+     * adding it.
+     * @return the id of the name or -1 if it is not in the table.
+     */
+    public int find(CharSequence text, int start, int end) {
+        int mask = slots.length - 1;
+        int slot = hash(text, start, end) & mask;
+
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (matches(names[id], text, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * The same value String.hashCode() gives for the name, so names and slices of a line hash alike.
+     */
+    private static int hash(CharSequence text, int start, int end) {
+        if (text instanceof String && start == 0 && end == text.length()) {
+            return text.hashCode();
+        }
+
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+
+    private static boolean matches(String name, CharSequence text, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (name.charAt(i - start) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+
+        for (int id = 0; id < size; id++) {
+            int slot = names[id].hashCode() & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of names in the table, which is one more than the largest id.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isOpCode(String name) {
+        int id = find(name);
+        return id >= 0 && opCodes.get(id);
+    }
+
+    public boolean isOpCode(int id) {
+        return id >= 0 && opCodes.get(id);
+    }
+
+    /**
+     * @param id an id from this table, or -1.
+     * @return the number of the register, 0 for R0, or -1 if the id is not a register.
+     */
+    public int registerNumber(int id) {
+        return id >= 0 && registers.get(id) ? id - OpCodeRule.RULES.length : -1;
+    }
+
+    public boolean isRegister(String name) {
+        int id = find(name);
+        return id >= 0 && registers.get(id);
+    }
+
+    public boolean isRegister(CharSequence text, int start, int end) {
+        int id = find(text, start, end);
+        return id >= 0 && registers.get(id);
+    }
+
+    public boolean isLabel(String name) {
+        int id = find(name);
+        return id >= 0 && labels.get(id);
+    }
+
+    public boolean isLabel(CharSequence text, int start, int end) {
+        int id = find(text, start, end);
+        return id >= 0 && labels.get(id);
+    }
+
+    public boolean isMemoryLocation(String name) {
+        int id = find(name);
+        return id >= 0 && memoryLocations.get(id);
+    }
+
+    public boolean isMemoryLocation(CharSequence text, int start, int end) {
+        int id = find(text, start, end);
+        return id >= 0 && memoryLocations.get(id);
+    }
+
+    public boolean isMemoryLocation(int id) {
+        return id >= 0 && memoryLocations.get(id);
+    }
+
+    /**
+     * This method is responsible for finding every symbol class the name between start and end of some text
+     * belongs to with a single lookup.
+     * @return the OpCodeRule REGISTER, MEMORY_LOCATION and LABEL bits of the name.
+     */
+    public int classify(CharSequence text, int start, int end) {
+        return classify(find(text, start, end));
+    }
+
+    /**
+     * @param id an id from this table, or -1.
+     * @return the OpCodeRule REGISTER, MEMORY_LOCATION and LABEL bits of the name with the id.
+     */
+    public int classify(int id) {
+        if (id < 0) {
+            return 0;
+        }
+
+        int classes = 0;
+        if (registers.get(id)) {
+            classes |= OpCodeRule.REGISTER;
+        }
+        if (memoryLocations.get(id)) {
+            classes |= OpCodeRule.MEMORY_LOCATION;
+        }
+        if (labels.get(id)) {
+            classes |= OpCodeRule.LABEL;
+        }
+        return classes;
+    }
+
+    public void defineLabel(String name) {
+        defineLabel(name, 0, name.length());
+    }
+
+    public void defineLabel(CharSequence text, int start, int end) {
+        int id = intern(text, start, end);
+        labels.set(id);
+        definedCount[id]++;
+
+        if (labelDefinitionCount == labelDefinitions.length) {
+            labelDefinitions = Arrays.copyOf(labelDefinitions, labelDefinitionCount * 2);
+        }
+        labelDefinitions[labelDefinitionCount++] = id;
+    }
+
+    public void referenceLabel(String name) {
+        int id = intern(name);
+        referencedCount[id]++;
+    }
+
+    public void referenceLabel(CharSequence text, int start, int end) {
+        int id = intern(text, start, end);
+        referencedCount[id]++;
+    }
+
+    public void defineMemoryLocation(String name) {
+        memoryLocations.set(intern(name));
+    }
+
+    public void defineMemoryLocation(CharSequence text, int start, int end) {
+        memoryLocations.set(intern(text, start, end));
+    }
+
+    /**
+     * This method is responsible for defining every label defined in another table, in the order they were
+     * defined there.
+     * @param other the table to copy from.
+     */
+    public void addLabels(SymbolTable other) {
+        for (int i = 0; i < other.labelDefinitionCount; i++) {
+            defineLabel(other.names[other.labelDefinitions[i]]);
+        }
+    }
+
+    /**
+     * This method is responsible for defining every memory location defined in another table.
+     * @param other the table to copy from.
+     */
+    public void addMemoryLocations(SymbolTable other) {
+        for (int id = other.memoryLocations.nextSetBit(0); id >= 0; id = other.memoryLocations.nextSetBit(id + 1)) {
+            defineMemoryLocation(other.names[id]);
+        }
+    }
+
+    /**
+     * This method is responsible for adding the branches to each label counted in another table.
+     * @param other the table to copy from.
+     */
+    public void addReferences(SymbolTable other) {
+        for (int id = 0; id < other.size; id++) {
+            if (other.referencedCount[id] > 0) {
+                int into = intern(other.names[id]);
+                referencedCount[into] += other.referencedCount[id];
+            }
+        }
+    }
+
+    /**
+     * This method is responsible for finding the labels that are never branched to in a single sweep over
+     * the definitions. Each branch to a label accounts for one of its definitions, earliest first, so a label
+     * defined twice but used once is still reported once.
+     * @return the unused labels in the order they were defined.
+     */
+    public List<String> unreferencedLabels() {
+        List<String> unused = new ArrayList<>();
+        int[] seen = new int[size];
+
+        for (int i = 0; i < labelDefinitionCount; i++) {
+            int id = labelDefinitions[i];
+            if (seen[id]++ >= referencedCount[id]) {
+                unused.add(names[id]);
+            }
+        }
+        return unused;
+    }
+}
@@ -0,0 +1,344 @@
+package pal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * This class is responsible for watching PAL files and checking them again every time they are saved. The
+ * result of every line is kept between checks, so after an edit only the lines whose text changed, or whose
+ * operands changed meaning because a label or DEF was added or removed elsewhere, go through the checker.
+ * Every other line replays its cached entry, counts and place in the control flow without being lexed again.
+ * The .log is then written out in full as before.
+ */
+public class WatchChecker {
+
+    /*
+     * How long to wait for an editor to finish writing a file before it is read.
+     */
+    private static final long SETTLE_MILLIS = 50;
+
+    /**
+     * What checking a line gave, along with everything needed to tell whether it still holds. A line
+     * depends only on its own text and on whether each of its operands was a label or a memory location
+     * at that point in the file.
+     */
+    private static class LineResult {
+        final String text;
+        final String label;           // label defined on the line, or null
+        final boolean checked;
+        final String[] operands;      // operands whose meaning the result depends on
+        final long state;             // two bits per operand: is a label, is a memory location
+        final int outcome;
+        final int length;             // how much of the line is reported, or -1 if it is not reported
+        final int code;               // the DiagnosticStore message code
+        final int detail;             // the operand the message names
+        final int category;           // the error category counted, or -1
+        final String memoryLocation;  // memory location introduced by a DEF, or null
+        final String labelReference;  // label a branch counted as accessed, or null
+        final int instruction;        // the instruction recorded for the control flow
+        final String[] memoryReads;   // memory locations the instruction reads
+
+        LineResult(String text, String label) {
+            this(text, label, false, null, 0, 0, -1, DiagnosticStore.NONE, -1, null, null, FlowAnalysis.NONE,
+                    null);
+        }
+
+        LineResult(String text, String label, boolean checked, String[] operands, long state, int outcome,
+                   int length, int code, int detail, String memoryLocation, String labelReference,
+                   int instruction, String[] memoryReads) {
+            this.text = text;
+            this.label = label;
+            this.checked = checked;
+            this.operands = operands;
+            this.state = state;
+            this.outcome = outcome;
+            this.length = length;
+            this.code = code;
+            this.detail = detail;
+            this.category = length < 0 ? -1 : DiagnosticStore.categoryOf(code);
+            this.memoryLocation = memoryLocation;
+            this.labelReference = labelReference;
+            this.instruction = instruction;
+            this.memoryReads = memoryReads;
+        }
+    }
+
+    /**
+     * The last version of a watched file and the result of each of its lines.
+     */
+    private static class FileState {
+        List<String> lines = List.of();
+        LineResult[] results = new LineResult[0];
+        HashMap<String, LineResult> byText = new HashMap<>();
+    }
+
+    private final HashMap<Path, FileState> states = new HashMap<>();
+    private final PalLexer lexer = new PalLexer();
+    private final ReportFormat format;
+    private PrintStream out = System.out;
+    private PrintStream err = System.err;
+
+    /**
+     * @param format the layout of the report written for each file.
+     */
+    public WatchChecker(ReportFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Sets where the result of each check and errors are printed, System.out and System.err by default.
+     */
+    public void setOutput(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * This method is responsible for checking every file named by the inputs, then checking them again as
+     * they change until the program is stopped. New .pal files in a watched directory are picked up too.
+     * @param inputs file names, directories (searched for .pal files) and glob patterns.
+     */
+    public void run(List<String> inputs) {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Set<Path> directories = new LinkedHashSet<>();
+
+            for (Path file: BatchChecker.findFiles(inputs)) {
+                if (!file.toString().endsWith(".pal")) {
+                    err.println("\nERROR: " + file + " is compressed and can only be checked without -watch.");
+                    continue;
+                }
+                Path absolute = file.toAbsolutePath().normalize();
+                directories.add(absolute.getParent());
+                recheck(absolute);
+            }
+            for (String input: inputs) {
+                Path path = Path.of(input);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> tree = Files.walk(path)) {
+                        tree.filter(Files::isDirectory).forEach(directory ->
+                                directories.add(directory.toAbsolutePath().normalize()));
+                    }
+                }
+            }
+            for (Path directory: directories) {
+                directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+
+            out.println("Watching " + directories.size() + " directories. Press Ctrl-C to stop.");
+
+            while (true) {
+                WatchKey key = watcher.take();
+                Thread.sleep(SETTLE_MILLIS);
+
+                Set<Path> changed = new LinkedHashSet<>();
+                while (key != null) {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event: key.pollEvents()) {
+                        if (event.context() instanceof Path) {
+                            Path file = directory.resolve((Path) event.context());
+                            if (file.toString().endsWith(".pal") && Files.isRegularFile(file)) {
+                                changed.add(file);
+                            }
+                        }
+                    }
+                    key.reset();
+                    key = watcher.poll();
+                }
+
+                for (Path file: changed) {
+                    recheck(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            err.println("\nERROR: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This method is responsible for checking a file again after it changed and writing its report. The file is
+     * read through PalInput, so its lines are split and decoded as a check without -watch sees them.
+     * @param file the PAL source.
+     */
+    void recheck(Path file) {
+        List<String> lines = new ArrayList<>();
+        try (PalInput input = PalInput.open(file)) {
+            CharSequence line;
+            while ((line = input.nextLine()) != null) {
+                lines.add(line.toString());
+            }
+        } catch (IOException ex) {
+            err.println("\nERROR: The input file " + file + " could not be read.");
+            return;
+        }
+
+        FileState state = states.computeIfAbsent(file, key -> new FileState());
+        LineResult[] results = align(state, lines);
+        StyleChecker run = new StyleChecker(file.toString(), false);
+        run.setFormat(format);
+        SymbolTable symbols = run.getSymbols();
+
+        /*
+         * Retrieve all labels used
+         */
+        for (LineResult result: results) {
+            if (result.label != null) {
+                symbols.defineLabel(result.label);
+            }
+        }
+
+        int rechecked = 0;
+        for (int i = 0; i < results.length; i++) {
+            LineResult result = results[i];
+
+            if (!result.checked || result.state != stateOf(symbols, result.operands)) {
+                result = check(run, result);
+                results[i] = result;
+                state.byText.put(result.text, result);
+                rechecked++;
+            } else {
+                if (result.length >= 0) {
+                    run.getDiagnostics().add(i + 1, result.text, result.length, result.code, result.detail);
+                }
+                if (result.category >= 0) {
+                    run.countError(result.category);
+                }
+                if (result.memoryLocation != null) {
+                    symbols.defineMemoryLocation(result.memoryLocation);
+                }
+                if (result.labelReference != null) {
+                    symbols.referenceLabel(result.labelReference);
+                }
+                run.replayFlow(result.label, result.instruction, result.labelReference, result.memoryReads,
+                        result.memoryLocation);
+            }
+
+            if (StyleChecker.isEnd(result.outcome)) {
+                break;
+            }
+        }
+
+        try {
+            run.finishReport();
+        } catch (IOException ex) {
+            err.println(ex.getMessage());
+            return;
+        }
+
+        state.lines = lines;
+        state.results = results;
+        if (state.byText.size() > 2 * results.length + 1024) {
+            state.byText.clear();
+        }
+
+        out.println("Checked " + file + ": " + run.getTotalErrors() + " errors, " + run.getNumLabelWarnings()
+                + " warnings (" + rechecked + " of " + results.length + " lines re-checked).");
+    }
+
+    /**
+     * This method is responsible for lining the new lines up with the results from the last check. The lines
+     * the two versions share at the start and end keep their results, and the lines in between reuse the result
+     * of any line with the same text. A line with no result left is only lexed for its label here.
+     */
+    private LineResult[] align(FileState state, List<String> lines) {
+        List<String> previous = state.lines;
+        LineResult[] results = new LineResult[lines.size()];
+
+        int common = Math.min(previous.size(), lines.size());
+        int prefix = 0;
+        while (prefix < common && lines.get(prefix).equals(previous.get(prefix))) {
+            results[prefix] = state.results[prefix];
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < common - prefix
+                && lines.get(lines.size() - 1 - suffix).equals(previous.get(previous.size() - 1 - suffix))) {
+            results[lines.size() - 1 - suffix] = state.results[previous.size() - 1 - suffix];
+            suffix++;
+        }
+
+        for (int i = prefix; i < lines.size() - suffix; i++) {
+            String text = lines.get(i);
+            LineResult cached = state.byText.get(text);
+
+            if (cached != null) {
+                results[i] = cached;
+            } else {
+                lexer.lex(text);
+                results[i] = new LineResult(text, lexer.hasLabel() ? lexer.label() : null);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * This method is responsible for running a line through the checker and recording what it did.
+     */
+    private static LineResult check(StyleChecker run, LineResult line) {
+        PalLexer lexer = run.getLexer();
+        SymbolTable symbols = run.getSymbols();
+        lexer.lex(line.text);
+
+        String[] operands = new String[lexer.operandCount() <= 3 ? lexer.operandCount() : 0];
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = lexer.operand(i);
+        }
+        long state = stateOf(symbols, operands);
+
+        DiagnosticStore diagnostics = run.getDiagnostics();
+        int entries = diagnostics.size();
+        int outcome = run.checkLexedLine(line.text);
+
+        boolean reported = diagnostics.size() > entries;
+        int length = reported ? diagnostics.length(entries) : -1;
+        int code = reported ? diagnostics.code(entries) : DiagnosticStore.NONE;
+        int detail = reported ? diagnostics.detail(entries) : -1;
+        int category = reported ? diagnostics.category(entries) : -1;
+
+        String memoryLocation = null;
+        String labelReference = null;
+        int opCodeId = lexer.hasOpCode() ? symbols.find(lexer.line(), lexer.opCodeStart(), lexer.opCodeEnd()) : -1;
+        if (category < 0 && symbols.isOpCode(opCodeId)) {
+            OpCodeRule rule = OpCodeRule.forId(opCodeId);
+            if (rule.definesMemoryLocation) {
+                memoryLocation = lexer.operand(0);
+            }
+            if (rule.labelSlot >= 0) {
+                labelReference = lexer.operand(rule.labelSlot);
+            }
+        }
+
+        return new LineResult(line.text, line.label, true, operands, state, outcome, length, code, detail,
+                memoryLocation, labelReference, run.lastFlowInstruction(), run.lastFlowMemoryReads());
+    }
+
+    private static long stateOf(SymbolTable symbols, String[] operands) {
+        long state = 0;
+        for (int i = 0; i < operands.length; i++) {
+            if (symbols.isLabel(operands[i])) {
+                state |= 1L << (2 * i);
+            }
+            if (symbols.isMemoryLocation(operands[i])) {
+                state |= 2L << (2 * i);
+            }
+        }
+        return state;
+    }
+}
@@ -0,0 +1,83 @@
+package pal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchCheckerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bundleAndGzipGiveTheReportsOfThePlainFiles() throws IOException {
+        Files.createDirectories(directory.resolve("plain"));
+        Files.createDirectories(directory.resolve("gzip"));
+        List<Path> plain = new ArrayList<>();
+        for (String name: Samples.NAMES) {
+            plain.add(Samples.copy(name, directory.resolve("plain")));
+        }
+
+        Path bundle = directory.resolve("samples.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(bundle))) {
+            for (Path file: plain) {
+                zip.putNextEntry(new ZipEntry(file.getFileName().toString()));
+                zip.write(Files.readAllBytes(file));
+                zip.closeEntry();
+            }
+        }
+        List<String> inputs = new ArrayList<>(List.of(bundle.toString()));
+        for (Path file: plain) {
+            Path gzip = directory.resolve("gzip").resolve(file.getFileName() + PalInput.GZIP_EXTENSION);
+            try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+                output.write(Files.readAllBytes(file));
+            }
+            inputs.add(gzip.toString());
+        }
+
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+        BatchChecker batch = new BatchChecker(false, 1, null, new LogFormat());
+        batch.setOutput(quiet, quiet);
+        batch.run(inputs);
+
+        StringBuilder entries = new StringBuilder();
+        for (Path file: plain) {
+            StyleChecker checker = new StyleChecker(file.toString(), false);
+            checker.check();
+            String expected = report(StyleChecker.reportBaseName(file.toString()));
+            String name = StyleChecker.reportBaseName(file.getFileName().toString());
+
+            assertEquals(expected, report(directory.resolve("samples.reports").resolve(name).toString()),
+                    "entry " + name);
+            assertEquals(expected, report(directory.resolve("gzip").resolve(name).toString()), "gzip " + name);
+            entries.append("    ").append(file.getFileName()).append(": ").append(checker.getTotalErrors())
+                    .append(" errors, ").append(checker.getNumLabelWarnings()).append(" warnings.\n");
+        }
+
+        String summary = Files.readString(directory.resolve("samples.reports").resolve(BatchChecker.BUNDLE_SUMMARY))
+                .replace(System.lineSeparator(), "\n");
+        assertTrue(summary.startsWith("\nBundle Summary for " + bundle + "\n"), summary);
+        assertTrue(summary.contains("\nEntries checked: " + plain.size() + ".\n"), summary);
+        assertTrue(summary.contains("\n\n" + entries + "\nPAL Compile completed"), summary);
+    }
+
+    /**
+     * @return the .log report of a file without the line naming where it was read from.
+     */
+    private static String report(String baseName) throws IOException {
+        return Files.readString(Path.of(baseName + ".log")).replaceFirst("Program was read from [^\\n]*", "");
+    }
+}
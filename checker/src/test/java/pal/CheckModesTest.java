@@ -0,0 +1,68 @@
+package pal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CheckModesTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void samplesGiveTheSameReportInEveryMode() throws IOException {
+        for (String name: Samples.NAMES) {
+            assertSameReports(Samples.copy(name, directory));
+        }
+    }
+
+    @Test
+    void generatedFileGivesTheSameReportInEveryMode() throws IOException {
+        assertSameReports(Samples.generate(directory.resolve("generated.pal"), 1, 3000));
+        assertSameReports(Samples.generate(directory.resolve("large.pal"), 2, 4 * 16384));
+    }
+
+    @Test
+    void branchToAMissingLabelDoesNotReadMemory() throws IOException {
+        Path file = Files.writeString(directory.resolve("missing.pal"),
+                "      SRT\n      DEF X, R1\n      BEQ X, 1, NOPE\n      END\n");
+        String report = assertSameReports(file);
+        assertTrue(report.contains("X is defined but never read."), report);
+    }
+
+    @Test
+    void branchToAMissingLabelBeforeManyLines() throws IOException {
+        Path file = Samples.generate(directory.resolve("held.pal"), 4, 3 * StyleChecker.MAX_HELD_LINES);
+        StringBuilder text = new StringBuilder(Files.readString(file));
+        text.insert(text.indexOf("\n") + 1, "      BR NOWHERE\n");
+        text.insert(text.length() / 2, "\n      BEQ R1, 1, GONE\n");
+        Files.writeString(file, text);
+
+        String report = assertSameReports(file);
+        assertTrue(report.contains("NOWHERE is not a recognized label."), report);
+        assertTrue(report.contains("GONE is not a recognized label."), report);
+    }
+
+    /**
+     * @return the report, once it is known to be the same checked in two passes, in a stream and in parallel.
+     */
+    private static String assertSameReports(Path file) throws IOException {
+        String twoPass = check(file, false, 1);
+        assertEquals(twoPass, check(file, true, 1), "stream " + file.getFileName());
+        assertEquals(twoPass, check(file, false, 4), "parallel " + file.getFileName());
+        return twoPass;
+    }
+
+    private static String check(Path file, boolean streamMode, int threads) throws IOException {
+        StyleChecker checker = new StyleChecker(file.toString(), streamMode);
+        checker.setThreads(threads);
+        checker.check();
+        return Files.readString(Path.of(StyleChecker.reportBaseName(file.toString()) + ".log"));
+    }
+}
@@ -0,0 +1,23 @@
+package pal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PalCheckerTest {
+
+    @Test
+    void resultDoesNotChangeWithTheSource() {
+        StringBuilder source = new StringBuilder("      SRT\n      MOV 1,  R1\n      END\n");
+        CheckResult result = new PalChecker().check(source);
+
+        source.replace(16, 19, "XYZ");
+
+        List<Diagnostic> diagnostics = result.getDiagnostics();
+        assertEquals(1, diagnostics.size());
+        assertEquals("Invalid Opcode. MOV was not found.", diagnostics.get(0).getMessage());
+        assertEquals("      MOV 1,  R1", diagnostics.get(0).getSource());
+    }
+}
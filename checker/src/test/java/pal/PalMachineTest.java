@@ -0,0 +1,93 @@
+package pal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PalMachineTest {
+
+    @TempDir
+    Path directory;
+
+    private final PalChecker checker = new PalChecker(1);
+
+    @Test
+    void runsSample() throws IOException {
+        PalMachine machine = new PalMachine(checker.compile(Files.readString(Samples.copy("samplePAL.pal",
+                directory))), true);
+
+        assertEquals(PalMachine.HALTED, machine.run(1000));
+        assertEquals(5, machine.getRegister(1));
+        assertEquals(5, machine.getRegister(6));
+        assertEquals(012, machine.getRegister(7));
+        assertEquals(19, machine.getExecuted());
+        assertEquals(9, machine.getLine());
+        assertEquals(4, machine.getOpCodeCount("ADD"));
+        assertEquals(3, machine.getOpCodeCount("BR"));
+        assertEquals(1, machine.getOpCodeCount("END"));
+    }
+
+    @Test
+    void carriesOnAfterItsBudget() throws IOException {
+        PalMachine machine = new PalMachine(checker.compile(Files.readString(Samples.copy("samplePAL.pal",
+                directory))), false);
+
+        assertEquals(PalMachine.OUT_OF_BUDGET, machine.run(5));
+        assertEquals(5, machine.getExecuted());
+        assertEquals(PalMachine.HALTED, machine.run(1000));
+        assertEquals(012, machine.getRegister(7));
+        assertEquals(19, machine.getExecuted());
+    }
+
+    @Test
+    void runsEveryOpCode() {
+        PalMachine machine = new PalMachine(checker.compile(
+                "      SRT\n"
+                + "      MOVE 7, R1\n"
+                + "      COPY R1, R2\n"
+                + "      SUB R1, 2, R3\n"
+                + "      MUL R3, R2, R4\n"
+                + "      DIV R4, 3, R5\n"
+                + "      MOVE 0, R0\n"
+                + "      DEC R0\n"
+                + "      BGT R0, R1, BIG\n"
+                + "      MOVE 1, R6\n"
+                + "BIG:  BEQ R2, R1, SAME\n"
+                + "      MOVE 1, R6\n"
+                + "SAME: INC R7\n"
+                + "      END\n"), false);
+
+        assertEquals(PalMachine.HALTED, machine.run(1000));
+        assertEquals(-1, machine.getRegister(0));
+        assertEquals(7, machine.getRegister(2));
+        assertEquals(5, machine.getRegister(3));
+        assertEquals(35, machine.getRegister(4));
+        assertEquals(11, machine.getRegister(5));
+        assertEquals(0, machine.getRegister(6));
+        assertEquals(1, machine.getRegister(7));
+    }
+
+    @Test
+    void stopsOnDivisionByZero() {
+        PalMachine machine = new PalMachine(checker.compile(
+                "      SRT\n      MOVE 0, R1\n      DIV 5, R1, R2\n      END\n"), false);
+
+        assertEquals(PalMachine.DIVIDED_BY_ZERO, machine.run(1000));
+        assertEquals(3, machine.getLine());
+    }
+
+    @Test
+    void opCodeIdsAreRulePositionsAndSymbolIds() {
+        SymbolTable symbols = new SymbolTable();
+        for (int i = 0; i < OpCodeRule.RULES.length; i++) {
+            assertEquals(i, OpCodeRule.RULES[i].id);
+            assertEquals(i, symbols.find(OpCodeRule.RULES[i].name));
+        }
+        assertEquals(OpCodeRule.BR, symbols.find("BR"));
+    }
+}
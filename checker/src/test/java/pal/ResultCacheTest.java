@@ -0,0 +1,109 @@
+package pal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"log", "json"})
+    void warmReportEqualsColdReport(String format) throws IOException {
+        Path cacheDirectory = directory.resolve("cache");
+        Path[] files = {Samples.copy("samplePAL.pal", directory), Samples.copy("samplePAL2.pal", directory),
+                Samples.generate(directory.resolve("generated.pal"), 3, 2000)};
+
+        for (Path file: files) {
+            String cold = check(file, cacheDirectory, format);
+            String warm = check(file, cacheDirectory, format);
+            assertEquals(cold, warm, file.getFileName().toString());
+        }
+    }
+
+    /**
+     * @return the report written for the file.
+     */
+    static String check(Path file, Path cacheDirectory, String format) throws IOException {
+        ReportFormat reportFormat = ReportFormat.forName(format);
+        StyleChecker checker = new StyleChecker(file.toString(), false);
+        checker.setCache(new ResultCache(cacheDirectory, 1 << 20));
+        checker.setFormat(reportFormat);
+        checker.check();
+        return Files.readString(Path.of(StyleChecker.reportBaseName(file.toString()) + reportFormat.extension()));
+    }
+
+    @Test
+    void jsonLinesAreSourceLines() throws IOException {
+        Path cacheDirectory = directory.resolve("cache");
+        Path file = Samples.copy("samplePAL2.pal", directory);
+
+        for (int run = 0; run < 2; run++) {
+            String report = check(file, cacheDirectory, "json");
+            assertTrue(report.contains("{\"type\":\"line\",\"line\":11,\"source\":\"L1:   INC  R1\""), report);
+        }
+    }
+
+    @Test
+    void damagedEntryIsAMiss() throws IOException {
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        cache.put("key", new ResultCache.Entry(new int[] {1, 2}, new int[] {3}, List.of("first"),
+                List.of("second")));
+        Path file = directory.resolve("key.result");
+        byte[] good = Files.readAllBytes(file);
+        assertNotNull(cache.get("key"));
+
+        int[] countOffsets = {4, 8, 20, 28, 32, 41};  // the version, the counts, lines, errors, error, warnings
+        int[] values = {-1, Integer.MIN_VALUE, Integer.MAX_VALUE, good.length};
+        for (int offset: countOffsets) {
+            for (int value: values) {
+                byte[] damaged = good.clone();
+                ByteBuffer.wrap(damaged).putInt(offset, value);
+                assertMiss(cache, file, damaged);
+            }
+        }
+        assertMiss(cache, file, Arrays.copyOf(good, good.length - 1));
+        assertMiss(cache, file, Arrays.copyOf(good, good.length + 1));
+        assertMiss(cache, file, new byte[0]);
+    }
+
+    @Test
+    void damagedEntriesAreCheckedAgain() throws IOException {
+        Path cacheDirectory = directory.resolve("cache");
+        Path file = Samples.copy("samplePAL2.pal", directory);
+        String cold = check(file, cacheDirectory, "json");
+
+        try (Stream<Path> entries = Files.list(cacheDirectory)) {
+            for (Path entry: (Iterable<Path>) entries::iterator) {
+                byte[] damaged = Files.readAllBytes(entry);
+                ByteBuffer.wrap(damaged).putInt(8, -1);
+                Files.write(entry, damaged);
+            }
+        }
+        assertEquals(cold, check(file, cacheDirectory, "json"));
+        assertEquals(cold, check(file, cacheDirectory, "json"));
+    }
+
+    private static void assertMiss(ResultCache cache, Path file, byte[] damaged) throws IOException {
+        Files.write(file, damaged);
+        assertNull(cache.get("key"));
+        assertFalse(Files.exists(file));
+    }
+}
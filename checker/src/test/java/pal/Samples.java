@@ -0,0 +1,90 @@
+package pal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * The sample programs at the top of the repository and generated programs for the tests.
+ */
+final class Samples {
+
+    static final String[] NAMES = {"samplePAL.pal", "samplePAL2.pal"};
+
+    private static final String[] LABELS = {"LONE", "LTWO", "DONE", "TOP", "NOPE", "L1", "LOOPER"};
+    private static final String[] MEMORY = {"X", "Y", "COUNT", "Z9"};
+    private static final String[] VALUES = {"R1", "R2", "R6", "R7", "1", "5", "17", "X", "COUNT", "R9"};
+
+    private Samples() {
+    }
+
+    /**
+     * @return a sample program copied into the directory.
+     */
+    static Path copy(String name, Path directory) throws IOException {
+        Path sample = Paths.get("..", name);
+        if (!Files.exists(sample)) {
+            sample = Paths.get(name);
+        }
+        return Files.copy(sample, directory.resolve(name));
+    }
+
+    /**
+     * This method is responsible for writing a program with every kind of line the checker reports on:
+     * labels defined before and after the branches to them or never, memory locations, comments with and
+     * without ELO, blank lines and lines after END.
+     */
+    static Path generate(Path file, long seed, int lines) throws IOException {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder("      SRT\n");
+        for (int i = 0; i < lines; i++) {
+            String label = random.nextInt(8) == 0 ? pick(random, LABELS) + ": " : "      ";
+            switch (random.nextInt(12)) {
+                case 0:
+                    text.append(label).append("DEF ").append(pick(random, MEMORY)).append(", 7\n");
+                    break;
+                case 1:
+                    text.append(label).append("BEQ ").append(pick(random, VALUES)).append(", ")
+                            .append(pick(random, VALUES)).append(", ").append(pick(random, LABELS)).append('\n');
+                    break;
+                case 2:
+                    text.append(label).append("BR ").append(pick(random, LABELS)).append('\n');
+                    break;
+                case 3:
+                    text.append(label).append("ADD ").append(pick(random, VALUES)).append(", ")
+                            .append(pick(random, VALUES)).append(", ").append(pick(random, VALUES)).append('\n');
+                    break;
+                case 4:
+                    text.append(random.nextBoolean() ? "      ;a comment ELO\n" : "      ;no end\n");
+                    break;
+                case 5:
+                    text.append('\n');
+                    break;
+                case 6:
+                    text.append(label).append("MOV 1, R1\n");
+                    break;
+                case 7:
+                    text.append(label).append("MOVE ").append(pick(random, VALUES)).append(",\n");
+                    break;
+                case 8:
+                    text.append(label).append("INC ").append(pick(random, VALUES)).append("   ;step ELO\n");
+                    break;
+                case 9:
+                    text.append(label).append("COPY ").append(pick(random, VALUES)).append(", ")
+                            .append(pick(random, VALUES)).append('\n');
+                    break;
+                default:
+                    text.append(label).append("MOVE ").append(pick(random, VALUES)).append(", ")
+                            .append(pick(random, VALUES)).append('\n');
+            }
+        }
+        text.append("DONE: END\nLATE: MOVE 1, R1\n");
+        return Files.writeString(file, text);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
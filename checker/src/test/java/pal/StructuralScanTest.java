@@ -0,0 +1,135 @@
+package pal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class StructuralScanTest {
+
+    private static final byte[] ALPHABET = {'a', ' ', ':', ';', ',', '\n', '\r', (byte) 0xC3, (byte) 0x80, 'E'};
+
+    @Test
+    void scanLineMatchesScalarScan() {
+        Random random = new Random(11);
+        int[] result = new int[4];
+
+        for (int round = 0; round < 20000; round++) {
+            ByteBuffer buffer = randomBytes(random, 1 + random.nextInt(40));
+            int from = random.nextInt(buffer.capacity());
+            int limit = from + random.nextInt(buffer.capacity() - from + 1);
+
+            StructuralScan.scanLine(buffer, from, limit, result);
+            assertArrayEquals(scalarScanLine(buffer, from, limit), result, describe(buffer, from, limit));
+        }
+    }
+
+    @Test
+    void characterOnEveryPositionOfAWord() {
+        int[] result = new int[4];
+        for (byte b: ALPHABET) {
+            for (int at = 0; at < 3 * Long.BYTES; at++) {
+                ByteBuffer buffer = ByteBuffer.allocate(3 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < buffer.capacity(); i++) {
+                    buffer.put(i, (byte) 'a');
+                }
+                buffer.put(at, b);
+
+                for (int from = 0; from <= at; from++) {
+                    StructuralScan.scanLine(buffer, from, buffer.capacity(), result);
+                    assertArrayEquals(scalarScanLine(buffer, from, buffer.capacity()), result,
+                            describe(buffer, from, buffer.capacity()));
+                }
+            }
+        }
+    }
+
+    @Test
+    void nextLineStartMatchesScalarScan() {
+        Random random = new Random(12);
+        for (int round = 0; round < 20000; round++) {
+            ByteBuffer buffer = randomBytes(random, 1 + random.nextInt(40));
+            int from = random.nextInt(buffer.capacity());
+            int limit = from + random.nextInt(buffer.capacity() - from + 1);
+
+            assertEquals(scalarNextLineStart(buffer, from, limit), StructuralScan.nextLineStart(buffer, from, limit),
+                    describe(buffer, from, limit));
+        }
+    }
+
+    @Test
+    void splitPointsStartLines() {
+        Random random = new Random(13);
+        for (int round = 0; round < 2000; round++) {
+            ByteBuffer buffer = randomBytes(random, 1 + random.nextInt(200));
+            int parts = 1 + random.nextInt(8);
+            int[] points = StructuralScan.splitPoints(buffer, 0, buffer.capacity(), parts);
+
+            assertEquals(0, points[0]);
+            assertEquals(buffer.capacity(), points[points.length - 1]);
+            assertTrue(points.length <= parts + 1);
+            for (int i = 1; i + 1 < points.length; i++) {
+                assertTrue(points[i] > points[i - 1], describe(buffer, 0, buffer.capacity()));
+                assertEquals(points[i], scalarNextLineStart(buffer, points[i] - 1, buffer.capacity()),
+                        describe(buffer, 0, buffer.capacity()));
+            }
+        }
+    }
+
+    private static ByteBuffer randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = random.nextInt(3) == 0 ? ALPHABET[random.nextInt(ALPHABET.length)] : (byte) 'a';
+        }
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int[] scalarScanLine(ByteBuffer buffer, int from, int limit) {
+        int colon = -1;
+        int semicolon = -1;
+        int ascii = 1;
+        int i = from;
+        for (; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                break;
+            }
+            if (b == ':' && colon < 0) {
+                colon = i - from;
+            }
+            if (b == ';' && semicolon < 0) {
+                semicolon = i - from;
+            }
+            if (b < 0) {
+                ascii = 0;
+            }
+        }
+        return new int[] {i, colon, semicolon, ascii};
+    }
+
+    private static int scalarNextLineStart(ByteBuffer buffer, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n') {
+                return i + 2;
+            }
+            if (b == '\n' || b == '\r') {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    private static String describe(ByteBuffer buffer, int from, int limit) {
+        StringBuilder bytes = new StringBuilder();
+        for (int i = 0; i < buffer.capacity(); i++) {
+            bytes.append(Integer.toHexString(buffer.get(i) & 0xFF)).append(' ');
+        }
+        return bytes + "from " + from + " limit " + limit;
+    }
+}
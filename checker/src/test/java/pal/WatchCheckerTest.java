@@ -0,0 +1,81 @@
+package pal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WatchCheckerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recheckEqualsFreshCheck() throws IOException {
+        Path file = Samples.generate(directory.resolve("edited.pal"), 5, 400);
+        List<String> pool = Files.readAllLines(Samples.generate(directory.resolve("pool.pal"), 6, 400));
+        WatchChecker watcher = quietWatcher();
+        Random random = new Random(7);
+
+        for (int edit = 0; edit < 40; edit++) {
+            watcher.recheck(file);
+            String watched = report(file);
+            assertEquals(fresh(file), watched, "after edit " + edit);
+
+            List<String> lines = new ArrayList<>(Files.readAllLines(file));
+            int line = random.nextInt(lines.size());
+            switch (random.nextInt(3)) {
+                case 0:
+                    lines.remove(line);
+                    break;
+                case 1:
+                    lines.add(line, pool.get(random.nextInt(pool.size())));
+                    break;
+                default:
+                    lines.set(line, pool.get(random.nextInt(pool.size())));
+            }
+            Files.write(file, lines);
+        }
+    }
+
+    @Test
+    void recheckOfSamplesEqualsFreshCheck() throws IOException {
+        WatchChecker watcher = quietWatcher();
+        for (String name: Samples.NAMES) {
+            Path file = Samples.copy(name, directory);
+            watcher.recheck(file);
+            assertEquals(fresh(file), report(file));
+
+            List<String> lines = new ArrayList<>(Files.readAllLines(file));
+            lines.add(1, "      DEF X, R1");
+            Files.write(file, lines);
+            watcher.recheck(file);
+            assertEquals(fresh(file), report(file));
+        }
+    }
+
+    private static WatchChecker quietWatcher() {
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+        WatchChecker watcher = new WatchChecker(ReportFormat.forName("log"));
+        watcher.setOutput(quiet, quiet);
+        return watcher;
+    }
+
+    private static String fresh(Path file) throws IOException {
+        new StyleChecker(file.toString(), false).check();
+        return report(file);
+    }
+
+    private static String report(Path file) throws IOException {
+        return Files.readString(Path.of(StyleChecker.reportBaseName(file.toString()) + ".log"));
+    }
+}